@@ -0,0 +1,61 @@
+package com.users.service.services.image.resample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Downscales a decoded-JPEG-like image to the profile picture bound with each resampler
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResamplerBenchmark {
+
+    @Param({ResamplerFactory.JAVA2D, ResamplerFactory.SCALAR, ResamplerFactory.VECTOR})
+    public String resampler;
+
+    @Param({"4000x3000", "2600x2600"})
+    public String sourceSize;
+
+    @Param({"" + BufferedImage.TYPE_3BYTE_BGR, "" + BufferedImage.TYPE_INT_ARGB})
+    public int sourceType;
+
+    private Resampler instance;
+    private BufferedImage source;
+    private int targetWidth;
+    private int targetHeight;
+
+    @Setup
+    public void setUp() {
+        instance = ResamplerFactory.create(resampler);
+        String[] dimensions = sourceSize.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        source = new BufferedImage(width, height, sourceType);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(32)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(32)) & 0xFF;
+                int b = random.nextInt(256);
+                source.setRGB(x, y, 0xFF000000 | (r << 16) | (g << 8) | b);
+            }
+        }
+        double scale = 2048.0 / Math.max(width, height);
+        targetWidth = (int) (width * scale);
+        targetHeight = (int) (height * scale);
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return instance.resize(source, targetWidth, targetHeight);
+    }
+}
@@ -0,0 +1,69 @@
+package com.users.service.loadtest;
+
+import com.users.service.exceptions.ProfilePictureNotFoundException;
+import com.users.service.services.image.ProcessedImage;
+import com.users.service.services.objectstore.ObjectStorageService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Stand-in for MinIO during load tests, images still go through the real processing pipeline
+@Service
+@Primary
+@Profile("loadtest")
+public class InMemoryObjectStorageService implements ObjectStorageService {
+
+    private static final String BUCKET_NAME = "in-memory";
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public String newProfilePictureUrl(String userId, String extension) {
+        return "/" + BUCKET_NAME + "/profile-pictures/" + userId + "/" + UUID.randomUUID() + extension;
+    }
+
+    @Override
+    public void storeProfilePicture(String objectUrl, ProcessedImage processedImage) {
+        objects.put(objectName(objectUrl), processedImage.getBytes());
+    }
+
+    @Override
+    public void deleteProfilePicture(String objectUrl) {
+        objects.remove(objectName(objectUrl));
+    }
+
+    @Override
+    public List<String> deleteProfilePictures(List<String> objectUrls) {
+        objectUrls.forEach(this::deleteProfilePicture);
+        return List.of();
+    }
+
+    @Override
+    public Resource loadProfilePicture(String objectUrl) {
+        String objectName = objectName(objectUrl);
+        byte[] bytes = objects.get(objectName);
+        if (bytes == null) {
+            throw new ProfilePictureNotFoundException("Profile picture not found: " + objectUrl);
+        }
+        return new ByteArrayResource(bytes, objectName);
+    }
+
+    private String objectName(String objectUrl) {
+        return objectUrl.substring(BUCKET_NAME.length() + 2);
+    }
+
+    public int size() {
+        return objects.size();
+    }
+}
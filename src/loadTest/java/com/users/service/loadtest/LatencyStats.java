@@ -0,0 +1,65 @@
+package com.users.service.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Latencies are recorded in microseconds, measured from the intended start time of each request
+public class LatencyStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final Histogram total = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    public LatencyStats() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    public void record(Operation operation, long latencyNanos, boolean success) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+        histograms.get(operation).recordValue(micros);
+        total.recordValue(micros);
+        if (!success) {
+            errors.get(operation).incrementAndGet();
+        }
+    }
+
+    public long totalCount() {
+        return total.getTotalCount();
+    }
+
+    public void print(PrintStream out, double elapsedSeconds) {
+        out.printf("%-10s %9s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                printRow(out, operation.getKey(), histogram, errors.get(operation).get(), elapsedSeconds);
+            }
+        }
+        long totalErrors = errors.values().stream().mapToLong(AtomicLong::get).sum();
+        printRow(out, "total", total, totalErrors, elapsedSeconds);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errorCount, double elapsedSeconds) {
+        out.printf("%-10s %9d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errorCount,
+                histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50.0) / 1000.0,
+                histogram.getValueAtPercentile(99.0) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}
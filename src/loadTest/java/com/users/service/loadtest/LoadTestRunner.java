@@ -0,0 +1,172 @@
+package com.users.service.loadtest;
+
+import com.users.service.UsersServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the service in-process against {@link InMemoryObjectStorageService} and an embedded (or local) Mongo,
+ * then drives an open-loop mixed workload at a fixed rate and prints throughput, latency percentiles and GC stats.
+ *
+ * <pre>
+ * ./gradlew loadTest -Dloadtest.rate=300 -Dloadtest.duration=120 -Dloadtest.mix=login=30,getById=70
+ * </pre>
+ *
+ * Options: loadtest.rate (requests/s), loadtest.warmup and loadtest.duration (seconds), loadtest.concurrency,
+ * loadtest.users (seeded users), loadtest.byIdsBatch, loadtest.imageWidth, loadtest.imageHeight,
+ * loadtest.mix (weights for register, login, getById, byIds, upload) and loadtest.mongo (embedded or local).
+ * The client runs in the same JVM as the service, so GC figures cover both.
+ */
+public class LoadTestRunner {
+
+    private static final String EMBEDDED_MONGO_AUTOCONFIG =
+            "de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        System.out.println("Load test settings: " + settings);
+
+        try (ConfigurableApplicationContext context = startService(settings)) {
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+            WorkloadClient client = new WorkloadClient(port, settings);
+            client.seed(settings.getSeedUsers());
+
+            ExecutorService executor = Executors.newFixedThreadPool(settings.getConcurrency());
+            try {
+                System.out.println("Warming up for " + settings.getWarmupSeconds() + "s");
+                runPhase(client, executor, settings, settings.getWarmupSeconds(), new LatencyStats());
+
+                System.out.println("Measuring for " + settings.getDurationSeconds() + "s");
+                Map<String, long[]> gcBefore = gcSnapshot();
+                LatencyStats stats = new LatencyStats();
+                long start = System.nanoTime();
+                runPhase(client, executor, settings, settings.getDurationSeconds(), stats);
+                double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.println();
+                stats.print(System.out, elapsedSeconds);
+                System.out.println();
+                printGc(gcBefore, gcSnapshot(), elapsedSeconds);
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startService(LoadTestSettings settings) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UsersServiceApplication.class)
+                .profiles("loadtest");
+        if (settings.isEmbeddedMongo()) {
+            builder.properties("spring.data.mongodb.port=0");
+        }
+        else {
+            builder.properties("spring.autoconfigure.exclude=" + EMBEDDED_MONGO_AUTOCONFIG);
+        }
+        return builder.run();
+    }
+
+    // Open loop: requests are issued on schedule whether or not earlier ones have finished,
+    // and latency is taken from the scheduled time so queueing delay is not hidden
+    private static void runPhase(WorkloadClient client, ExecutorService executor, LoadTestSettings settings,
+                                 int seconds, LatencyStats stats) throws InterruptedException {
+        WeightedPicker picker = new WeightedPicker(settings.getMix());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.getRate();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong inFlight = new AtomicLong();
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            Operation operation = picker.pick();
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                boolean success = false;
+                try {
+                    success = client.execute(operation);
+                }
+                catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                finally {
+                    stats.record(operation, System.nanoTime() - intended, success);
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Map<String, long[]> gcSnapshot() {
+        Map<String, long[]> snapshot = new HashMap<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            snapshot.put(gc.getName(), new long[]{gc.getCollectionCount(), gc.getCollectionTime()});
+        }
+        return snapshot;
+    }
+
+    private static void printGc(Map<String, long[]> before, Map<String, long[]> after, double elapsedSeconds) {
+        System.out.printf("%-28s %10s %12s %10s%n", "collector", "count", "time ms", "% of run");
+        for (Map.Entry<String, long[]> entry : after.entrySet()) {
+            long[] start = before.getOrDefault(entry.getKey(), new long[]{0, 0});
+            long count = entry.getValue()[0] - start[0];
+            long timeMs = entry.getValue()[1] - start[1];
+            System.out.printf("%-28s %10d %12d %9.2f%%%n",
+                    entry.getKey(), count, timeMs, timeMs / (elapsedSeconds * 10.0));
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.printf("heap used %d MB of %d MB committed%n", heap.getUsed() >> 20, heap.getCommitted() >> 20);
+    }
+
+    private static final class WeightedPicker {
+
+        private final Operation[] operations;
+        private final int[] cumulativeWeights;
+
+        WeightedPicker(Map<Operation, Integer> weights) {
+            List<Map.Entry<Operation, Integer>> entries = List.copyOf(weights.entrySet());
+            operations = new Operation[entries.size()];
+            cumulativeWeights = new int[entries.size()];
+            int sum = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                sum += entries.get(i).getValue();
+                operations[i] = entries.get(i).getKey();
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        Operation pick() {
+            int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return operations[i];
+                }
+            }
+            return operations[operations.length - 1];
+        }
+    }
+}
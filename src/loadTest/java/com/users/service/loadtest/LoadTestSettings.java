@@ -0,0 +1,70 @@
+package com.users.service.loadtest;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// All settings are read from -Dloadtest.* system properties
+@Getter
+public class LoadTestSettings {
+
+    private final int rate;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int concurrency;
+    private final int seedUsers;
+    private final int byIdsBatchSize;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final boolean embeddedMongo;
+    private final Map<Operation, Integer> mix;
+
+    private LoadTestSettings() {
+        this.rate = intProperty("loadtest.rate", 200);
+        this.warmupSeconds = intProperty("loadtest.warmup", 15);
+        this.durationSeconds = intProperty("loadtest.duration", 60);
+        this.concurrency = intProperty("loadtest.concurrency", 64);
+        this.seedUsers = intProperty("loadtest.users", 200);
+        this.byIdsBatchSize = intProperty("loadtest.byIdsBatch", 10);
+        this.imageWidth = intProperty("loadtest.imageWidth", 2400);
+        this.imageHeight = intProperty("loadtest.imageHeight", 1800);
+        this.embeddedMongo = !"local".equalsIgnoreCase(System.getProperty("loadtest.mongo", "embedded"));
+        this.mix = parseMix(System.getProperty("loadtest.mix", "register=5,login=20,getById=50,byIds=20,upload=5"));
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    // Parses weights such as "login=20,getById=80"
+    private static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromKey(parts[0]), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix must contain at least one positive weight");
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + rate + "/s, warmup=" + warmupSeconds + "s, duration=" + durationSeconds + "s"
+                + ", concurrency=" + concurrency + ", users=" + seedUsers
+                + ", mongo=" + (embeddedMongo ? "embedded" : "local") + ", mix=" + mix;
+    }
+}
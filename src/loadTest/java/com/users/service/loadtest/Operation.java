@@ -0,0 +1,28 @@
+package com.users.service.loadtest;
+
+public enum Operation {
+    REGISTER("register"),
+    LOGIN("login"),
+    GET_BY_ID("getById"),
+    BY_IDS("byIds"),
+    UPLOAD_PICTURE("upload");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
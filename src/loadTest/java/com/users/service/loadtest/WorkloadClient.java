@@ -0,0 +1,145 @@
+package com.users.service.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Issues the HTTP calls of the mixed workload against a running service
+public class WorkloadClient {
+
+    private static final Pattern USER_ID = Pattern.compile("\"userId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String PASSWORD = "load-test-password";
+    private static final String BOUNDARY = "----loadtest-boundary";
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong userSequence = new AtomicLong();
+    private final List<SeedUser> seedUsers = new ArrayList<>();
+    private final byte[] uploadBody;
+    private final int byIdsBatchSize;
+
+    public WorkloadClient(int port, LoadTestSettings settings) throws IOException {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = "http://localhost:" + port + "/users";
+        this.uploadBody = multipartBody(sampleJpeg(settings.getImageWidth(), settings.getImageHeight()));
+        this.byIdsBatchSize = settings.getByIdsBatchSize();
+    }
+
+    public void seed(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            String username = nextUsername();
+            HttpResponse<String> response = send(registerRequest(username));
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+            }
+            Matcher matcher = USER_ID.matcher(response.body());
+            if (matcher.find()) {
+                seedUsers.add(new SeedUser(matcher.group(1), username));
+            }
+        }
+    }
+
+    // Returns true when the service answered with a 2xx status
+    public boolean execute(Operation operation) throws IOException, InterruptedException {
+        HttpRequest request = switch (operation) {
+            case REGISTER -> registerRequest(nextUsername());
+            case LOGIN -> loginRequest(randomSeedUser().username());
+            case GET_BY_ID -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomSeedUser().id())).GET().build();
+            case BY_IDS -> HttpRequest.newBuilder(URI.create(baseUrl + "/byIds?ids=" + randomIds())).GET().build();
+            case UPLOAD_PICTURE -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomSeedUser().id() + "/profile-picture"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(uploadBody))
+                    .build();
+        };
+        int status = send(request).statusCode();
+        return status >= 200 && status < 300;
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest registerRequest(String username) {
+        String json = "{\"username\":\"" + username + "\",\"email\":\"" + username + "@loadtest.local\""
+                + ",\"firstName\":\"Load\",\"lastName\":\"Test\",\"password\":\"" + PASSWORD + "\"}";
+        return jsonPost("/register", json);
+    }
+
+    private HttpRequest loginRequest(String username) {
+        return jsonPost("/login", "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}");
+    }
+
+    private HttpRequest jsonPost(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private String nextUsername() {
+        return "lt-" + runId + "-" + userSequence.incrementAndGet();
+    }
+
+    private SeedUser randomSeedUser() {
+        return seedUsers.get(ThreadLocalRandom.current().nextInt(seedUsers.size()));
+    }
+
+    private String randomIds() {
+        StringJoiner ids = new StringJoiner(",");
+        for (int i = 0; i < byIdsBatchSize; i++) {
+            ids.add(randomSeedUser().id());
+        }
+        return ids.toString();
+    }
+
+    private static byte[] multipartBody(byte[] image) {
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"avatar.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        String tail = "\r\n--" + BOUNDARY + "--\r\n";
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 256);
+        body.writeBytes(head.getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(image);
+        body.writeBytes(tail.getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    // Gradient with noise so the encoder sees photo-like content rather than a flat colour
+    private static byte[] sampleJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(24)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(24)) & 0xFF;
+                int b = ((x + y) * 255 / (width + height) + random.nextInt(24)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private record SeedUser(String id, String username) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.users.service.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.users.service.exceptions.GlobalExceptionHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-route concurrency limits in front of the controllers.
+ * <p>
+ * Every configured route gets its own limiter, so heavy routes (bcrypt on login/register, image processing on
+ * upload) cannot take all Tomcat threads away from cheap reads. A request over its route's limit is answered with
+ * 503 and Retry-After straight away instead of queueing. Runs right after the observation filter, so shed requests
+ * still show up in http.server.requests but cost nothing beyond the rejection.
+ * <p>
+ * The permit is held for the whole request, but adaptive limiters only learn from the time spent in the handler,
+ * measured by {@link AdmissionControlInterceptor}. Body transfer from a slow client is not a sign of overload.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final List<LimitedRoute> routes = new ArrayList<>();
+
+    public AdmissionControlFilter(AdmissionControlProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.enabled = properties.isEnabled();
+        for (AdmissionControlProperties.Route route : properties.getRoutes()) {
+            ConcurrencyLimiter limiter = createLimiter(route);
+            Gauge.builder("users.admission.limit", limiter, ConcurrencyLimiter::getLimit)
+                    .description("Current concurrency limit of the route")
+                    .tag("route", route.getName())
+                    .register(meterRegistry);
+            Gauge.builder("users.admission.inflight", limiter, ConcurrencyLimiter::getInFlight)
+                    .description("Requests currently admitted on the route")
+                    .tag("route", route.getName())
+                    .register(meterRegistry);
+            Counter rejected = Counter.builder("users.admission.rejected")
+                    .description("Requests shed because the route was at its limit")
+                    .tag("route", route.getName())
+                    .register(meterRegistry);
+            routes.add(new LimitedRoute(route.getName(), route.getMethod(),
+                    PathPatternParser.defaultInstance.parse(route.getPath()), limiter, rejected));
+            log.info("Admission control for {} {} {}: {} limiter, limit {}", route.getName(),
+                    route.getMethod() == null ? "*" : route.getMethod(), route.getPath(), route.getLimiter(), limiter.getLimit());
+        }
+    }
+
+    private static ConcurrencyLimiter createLimiter(AdmissionControlProperties.Route route) {
+        switch (route.getLimiter().toLowerCase()) {
+            case "fixed":
+                return new FixedConcurrencyLimiter(route.getLimit());
+            case "aimd":
+                return new AimdConcurrencyLimiter(route.getLimit(), route.getMinLimit(), route.getMaxLimit(),
+                        route.getLatencyThreshold().toNanos(), route.getBackoffRatio());
+            default:
+                throw new IllegalArgumentException("Unknown limiter '" + route.getLimiter() + "' for route " + route.getName());
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        LimitedRoute route = match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!route.limiter().tryAcquire()) {
+            route.rejected().increment();
+            reject(response, route);
+            return;
+        }
+
+        HandlerTiming timing = new HandlerTiming();
+        request.setAttribute(HandlerTiming.ATTRIBUTE, timing);
+        try {
+            filterChain.doFilter(request, response);
+        }
+        finally {
+            route.limiter().release(timing.elapsedNanos(), isOverloaded(response.getStatus()));
+        }
+    }
+
+    // Only explicit unavailability and timeouts count, other errors say nothing about load and latency covers the rest
+    private static boolean isOverloaded(int status) {
+        return status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+
+    private LimitedRoute match(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (LimitedRoute route : routes) {
+            if ((route.method() == null || route.method().equalsIgnoreCase(request.getMethod()))
+                    && route.pattern().matches(pathContainer)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, LimitedRoute route) throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Shedding request on {}: {} in flight, limit {}", route.name(),
+                    route.limiter().getInFlight(), route.limiter().getLimit());
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        GlobalExceptionHandler.ErrorResponse error = new GlobalExceptionHandler.ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, please retry later");
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private record LimitedRoute(String name, String method, PathPattern pattern, ConcurrencyLimiter limiter, Counter rejected) {
+    }
+}
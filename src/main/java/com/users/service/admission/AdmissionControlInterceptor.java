@@ -0,0 +1,27 @@
+package com.users.service.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Times the handler for AdmissionControlFilter. DispatcherServlet resolves multipart requests before it asks the
+// interceptors, so the timing leaves out the upload of the request body.
+@Component
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(HandlerTiming.ATTRIBUTE) instanceof HandlerTiming timing) {
+            timing.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(HandlerTiming.ATTRIBUTE) instanceof HandlerTiming timing) {
+            timing.stop();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.users.service.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionControlProperties {
+
+    private boolean enabled = true;
+    //first matching route wins, requests matching no route are not limited
+    private List<Route> routes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Route {
+        private String name;
+        //any method when empty
+        private String method;
+        private String path;
+        //fixed or aimd
+        private String limiter = "fixed";
+        //the fixed limit, or the starting point for aimd
+        private int limit = 100;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+        private double backoffRatio = 0.9;
+    }
+}
@@ -0,0 +1,11 @@
+package com.users.service.admission;
+
+public interface ConcurrencyLimiter {
+    //false when the limit is reached and the request should be shed
+    boolean tryAcquire();
+    //called once for every successful tryAcquire, overloaded marks a response that signals overload (503, 504),
+    //latencyNanos is negative when the request never reached a handler and has no latency to learn from
+    void release(long latencyNanos, boolean overloaded);
+    int getLimit();
+    int getInFlight();
+}
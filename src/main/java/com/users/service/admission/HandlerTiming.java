@@ -0,0 +1,30 @@
+package com.users.service.admission;
+
+// Server-side part of an admitted request, from the handler being picked to the request completing. Reading a
+// multipart body happens before that, so slow client uploads do not look like an overloaded server.
+class HandlerTiming {
+
+    static final String ATTRIBUTE = HandlerTiming.class.getName();
+
+    private long startNanos = -1;
+    private long endNanos = -1;
+
+    //a forward picks a handler again, the first one counts
+    void start() {
+        if (startNanos < 0) {
+            startNanos = System.nanoTime();
+        }
+    }
+
+    void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    //-1 when the request never reached a handler
+    long elapsedNanos() {
+        if (startNanos < 0) {
+            return -1;
+        }
+        return (endNanos < 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+}
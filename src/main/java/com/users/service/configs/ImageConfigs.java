@@ -0,0 +1,19 @@
+package com.users.service.configs;
+
+import com.users.service.services.image.resample.Resampler;
+import com.users.service.services.image.resample.ResamplerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ImageConfigs {
+
+    @Value("${image.resampler:vector}")
+    private String resampler;
+
+    @Bean
+    public Resampler resampler() {
+        return ResamplerFactory.create(resampler);
+    }
+}
@@ -0,0 +1,55 @@
+package com.users.service.configs;
+
+import com.users.service.documents.PendingDeletion;
+import com.users.service.documents.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Spring Boot leaves spring.data.mongodb.auto-index-creation off, so the @Indexed annotations on the documents
+// are applied here once the application has started. Runs in the background so an unreachable Mongo does not
+// hold up startup, ensureIndex is a no-op for indexes that already exist.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> DOCUMENTS = List.of(User.class, PendingDeletion.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void ensureIndexes() {
+        Thread.ofPlatform().name("mongo-indexes").daemon().start(this::createIndexes);
+    }
+
+    void createIndexes() {
+        int failed = 0;
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> document : DOCUMENTS) {
+            IndexOperations indexOperations = mongoTemplate.indexOps(document);
+            for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                try {
+                    indexOperations.ensureIndex(index);
+                }
+                catch (RuntimeException e) {
+                    failed++;
+                    log.warn("Could not create index {} on {}: {}", index.getIndexKeys().toJson(),
+                            document.getSimpleName(), e.getMessage());
+                }
+            }
+        }
+        if (failed == 0) {
+            log.info("Mongo indexes ensured for {}", DOCUMENTS.stream().map(Class::getSimpleName).toList());
+        }
+    }
+}
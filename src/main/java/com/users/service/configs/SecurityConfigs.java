@@ -1,5 +1,6 @@
 package com.users.service.configs;
 
+import com.users.service.metrics.AuthMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -8,7 +9,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class SecurityConfigs {
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(AuthMetrics authMetrics){
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), authMetrics);
     }
 }
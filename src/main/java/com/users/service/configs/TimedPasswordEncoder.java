@@ -0,0 +1,29 @@
+package com.users.service.configs;
+
+import com.users.service.metrics.AuthMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// Records how long hashing and verifying passwords takes, bcrypt being the dominant cost of login/register
+@RequiredArgsConstructor
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final AuthMetrics authMetrics;
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return authMetrics.bcryptEncodeTimer().record(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Boolean matches = authMetrics.bcryptMatchTimer().record(() -> delegate.matches(rawPassword, encodedPassword));
+        return Boolean.TRUE.equals(matches);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
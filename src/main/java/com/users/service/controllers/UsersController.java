@@ -1,29 +1,56 @@
 package com.users.service.controllers;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.users.service.dtos.*;
 import com.users.service.exceptions.DuplicateUserException;
+import com.users.service.exceptions.InvalidFileTypeException;
 import com.users.service.exceptions.UserNotFoundException;
 import com.users.service.services.UserService;
+import com.users.service.services.cache.CachedUserResp;
+import com.users.service.services.cache.UserRespCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 @RestController
 @RequestMapping("/users")
 public class UsersController {
 
+    //Tomcat request attributes for serving a file with sendfile(2)
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private final UserService userService;
+    private final UserRespCache userRespCache;
 
     @Autowired
-    public UsersController(UserService userService) {
+    public UsersController(UserService userService, UserRespCache userRespCache) {
         this.userService = userService;
+        this.userRespCache = userRespCache;
     }
 
     @PostMapping("/register")
@@ -47,10 +74,17 @@ public class UsersController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<UserResp> getUserById(@PathVariable String id) {
+    public ResponseEntity<byte[]> getUserById(@PathVariable String id, WebRequest request) {
         try {
-            UserResp user = userService.getUserById(id);
-            return ResponseEntity.ok(user);
+            CachedUserResp user = userService.getCachedUserById(id);
+            // Answers 304 when If-None-Match matches, before any serialization
+            if (request.checkNotModified(user.getEtag())) {
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .eTag(user.getEtag())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(user.getJson());
         } catch (UserNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
@@ -68,13 +102,22 @@ public class UsersController {
     }
 
     @GetMapping("/byIds")
-    public ResponseEntity<Page<UserResp>> getUsersByIds(
+    public ResponseEntity<Page<RawValue>> getUsersByIds(
             @RequestParam List<String> ids,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<UserResp> users = userService.getAllUsersByIds(ids, pageable);
-        return ResponseEntity.ok(users);
+        Page<CachedUserResp> users = userService.getAllUsersByIds(ids, pageable);
+        // Built from the member ETags, a 304 costs no serialization at all
+        String etag = userRespCache.etagOf(users.getContent(),
+                users.getTotalElements() + ":" + page + ":" + size);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        // Members are written as their cached JSON, Jackson only serializes the page around them
+        return ResponseEntity.ok().eTag(etag)
+                .body(users.map(user -> new RawValue(new String(user.getJson(), StandardCharsets.UTF_8))));
     }
 
     @PostMapping("/{id}/profile-picture")
@@ -86,8 +129,50 @@ public class UsersController {
             return ResponseEntity.ok(user);
         } catch (UserNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (InvalidFileTypeException e) {
+            // Bad uploads are the client's fault, GlobalExceptionHandler answers 400
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    @GetMapping("/{id}/profile-picture")
+    public void getProfilePicture(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Resource picture = userService.getProfilePicture(id);
+        MediaType mediaType = MediaTypeFactory.getMediaType(picture).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(mediaType.toString());
+
+        if (picture.isFile()) {
+            writeFile(picture.getFile().toPath(), request, response);
+            return;
+        }
+        try (InputStream inputStream = picture.getInputStream()) {
+            inputStream.transferTo(response.getOutputStream());
+        }
+    }
+
+    // Local files go out through Tomcat's sendfile when the connector supports it, without a copy in user space.
+    // Otherwise they are copied onto the response stream, which is neither a file nor a socket channel, so
+    // FileChannel.transferTo goes through a buffer there
+    private void writeFile(Path path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setContentLengthLong(size);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, path.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, 0L);
+                request.setAttribute(SENDFILE_END_ATTR, size);
+                return;
+            }
+
+            OutputStream outputStream = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
 }
@@ -0,0 +1,30 @@
+package com.users.service.documents;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Outbox entry for an object that should be removed from storage once no user references it
+@Getter
+@Setter
+@Document(collection = "pending_deletions")
+public class PendingDeletion {
+    //the object url doubles as the id, so scheduling the same object twice is a no-op
+    @Id
+    private String objectUrl;
+    private String reason;
+    private int attempts;
+    @Indexed
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private String lastError;
+    //sweep run holding the entry, its lease ends at nextAttemptAt
+    @Indexed(sparse = true)
+    private String claimedBy;
+    //bumped on every write, the sweeper only removes or reschedules the version it claimed
+    private long version;
+}
@@ -19,10 +19,14 @@ public class User {
     private String username;
     private String firstName;
     private String lastName;
+    @Indexed(sparse = true)
     private String profileImageUrl;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private boolean active;
+    //written behind by UserActivityService, may lag a few seconds
+    private LocalDateTime lastLoginAt;
+    private LocalDateTime lastSeenAt;
     //below properties are private
     private String password;
     @Indexed(unique = true)
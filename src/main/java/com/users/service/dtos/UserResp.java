@@ -21,6 +21,8 @@ public class UserResp {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private boolean active;
+    private LocalDateTime lastLoginAt;
+    private LocalDateTime lastSeenAt;
     private String password;
     private String email;
     private String phone;
@@ -37,6 +39,8 @@ public class UserResp {
         this.createdAt = user.getCreatedAt();
         this.updatedAt = user.getUpdatedAt();
         this.active = user.isActive();
+        this.lastLoginAt = user.getLastLoginAt();
+        this.lastSeenAt = user.getLastSeenAt();
         this.password = user.getPassword();
     }
 }
@@ -0,0 +1,7 @@
+package com.users.service.exceptions;
+
+public class ProfilePictureNotFoundException extends RuntimeException {
+    public ProfilePictureNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,57 @@
+package com.users.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class AuthMetrics {
+
+    public static final String OPERATION_LOGIN = "login";
+    public static final String OPERATION_REGISTER = "register";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_UNKNOWN_USER = "unknown_user";
+    public static final String OUTCOME_BAD_PASSWORD = "bad_password";
+    public static final String OUTCOME_DUPLICATE_USERNAME = "duplicate_username";
+    public static final String OUTCOME_DUPLICATE_EMAIL = "duplicate_email";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> outcomeCounters = new ConcurrentHashMap<>();
+    private final Timer bcryptEncode;
+    private final Timer bcryptMatch;
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.bcryptEncode = bcryptTimer("encode");
+        this.bcryptMatch = bcryptTimer("matches");
+    }
+
+    private Timer bcryptTimer(String operation) {
+        return Timer.builder("users.password.hash.duration")
+                .description("Time spent hashing or verifying passwords")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void recordOutcome(String operation, String outcome) {
+        outcomeCounters.computeIfAbsent(operation + ':' + outcome, k -> Counter.builder("users.auth.requests")
+                .description("Login and registration attempts by outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)).increment();
+    }
+
+    public Timer bcryptEncodeTimer() {
+        return bcryptEncode;
+    }
+
+    public Timer bcryptMatchTimer() {
+        return bcryptMatch;
+    }
+}
@@ -0,0 +1,85 @@
+package com.users.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ImagePipelineMetrics {
+
+    //Pipeline stages of a profile picture upload
+    public static final String STAGE_VALIDATE = "validate";
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_RESIZE = "resize";
+    public static final String STAGE_ENCODE = "encode";
+    public static final String STAGE_STORE = "store";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> storageTimers = new ConcurrentHashMap<>();
+    private final DistributionSummary bytesIn;
+    private final DistributionSummary bytesOut;
+    private final DistributionSummary compressionRatio;
+    private final DistributionSummary encodeTrials;
+
+    public ImagePipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.bytesIn = DistributionSummary.builder("users.image.bytes.in")
+                .description("Size of uploaded images before processing")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.bytesOut = DistributionSummary.builder("users.image.bytes.out")
+                .description("Size of processed images written to object storage")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.compressionRatio = DistributionSummary.builder("users.image.compression.ratio")
+                .description("Ratio of uploaded bytes to stored bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.encodeTrials = DistributionSummary.builder("users.image.encode.trials")
+                .description("Trial encodes needed to fit the byte budget")
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stopStage(Timer.Sample sample, String stage) {
+        sample.stop(stageTimers.computeIfAbsent(stage, s -> Timer.builder("users.image.stage.duration")
+                .description("Time spent in each stage of the image pipeline")
+                .tag("stage", s)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    public void stopStorageCall(Timer.Sample sample, String operation, String outcome) {
+        sample.stop(storageTimers.computeIfAbsent(operation + ':' + outcome, k -> Timer.builder("users.objectstore.request.duration")
+                .description("Latency of object storage calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    public void recordEncodeTrials(int trials) {
+        encodeTrials.record(trials);
+    }
+
+    public void recordSizes(long originalBytes, long processedBytes) {
+        bytesIn.record(originalBytes);
+        bytesOut.record(processedBytes);
+        if (processedBytes > 0) {
+            compressionRatio.record((double) originalBytes / processedBytes);
+        }
+    }
+}
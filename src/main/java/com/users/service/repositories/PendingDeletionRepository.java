@@ -0,0 +1,15 @@
+package com.users.service.repositories;
+
+import com.users.service.documents.PendingDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PendingDeletionRepository extends MongoRepository<PendingDeletion, String> {
+    List<PendingDeletion> findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(LocalDateTime now, Pageable pageable);
+    List<PendingDeletion> findByClaimedBy(String claimedBy);
+}
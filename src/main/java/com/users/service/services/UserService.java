@@ -1,6 +1,8 @@
 package com.users.service.services;
 
 import com.users.service.dtos.*;
+import com.users.service.services.cache.CachedUserResp;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -11,7 +13,9 @@ public interface UserService {
     UserRegistrationResp registerUser(UserRegistrationDTO request);
     UserLoginResp loginUser(UserLoginReq request);
     UserResp getUserById(String id);
-    Page<UserResp> getAllUsersByIds(List<String> ids, Pageable pageable);
+    CachedUserResp getCachedUserById(String id);
+    Page<CachedUserResp> getAllUsersByIds(List<String> ids, Pageable pageable);
     Page<UserResp> getAllUsers(Pageable pageable);
     UserResp uploadProfilePicture(String userId, MultipartFile file);
+    Resource getProfilePicture(String userId);
 }
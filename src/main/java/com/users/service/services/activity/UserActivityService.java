@@ -0,0 +1,7 @@
+package com.users.service.services.activity;
+
+public interface UserActivityService {
+    void recordLogin(String userId);
+    void recordSeen(String userId);
+    void flush();
+}
@@ -0,0 +1,147 @@
+package com.users.service.services.activity.impl;
+
+import com.users.service.documents.User;
+import com.users.service.services.activity.UserActivityService;
+import com.users.service.services.cache.UserRespCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Coalesces last-login/last-seen updates per user in memory and writes them behind in unordered bulk
+// $max updates, so the Mongo write rate depends on the number of active users rather than the login rate
+@Service
+@Slf4j
+public class UserActivityServiceImpl implements UserActivityService {
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRespCache userRespCache;
+    private final Map<String, PendingActivity> pending = new ConcurrentHashMap<>();
+    private final Counter dropped;
+    private final Timer flushTimer;
+
+    //Users tracked between flushes, updates for further users are dropped until the next flush
+    @Value("${users.activity.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${users.activity.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    public UserActivityServiceImpl(MongoTemplate mongoTemplate, UserRespCache userRespCache, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.userRespCache = userRespCache;
+        Gauge.builder("users.activity.pending", pending, Map::size)
+                .description("Users with activity waiting to be flushed")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("users.activity.dropped")
+                .description("Activity updates dropped because the buffer was full")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("users.activity.flush.duration")
+                .description("Time spent writing buffered activity to Mongo")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void recordLogin(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        record(userId, new PendingActivity(now, now));
+    }
+
+    @Override
+    public void recordSeen(String userId) {
+        record(userId, new PendingActivity(null, LocalDateTime.now()));
+    }
+
+    private void record(String userId, PendingActivity activity) {
+        if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+            dropped.increment();
+            return;
+        }
+        pending.merge(userId, activity, PendingActivity::latest);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${users.activity.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            Map<String, PendingActivity> batch = new HashMap<>();
+            for (String userId : new ArrayList<>(pending.keySet())) {
+                PendingActivity activity = pending.remove(userId);
+                if (activity != null) {
+                    batch.put(userId, activity);
+                }
+                if (batch.size() >= flushBatchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        });
+    }
+
+    private void write(Map<String, PendingActivity> batch) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        List<String> userIds = new ArrayList<>(batch.keySet());
+        for (String userId : userIds) {
+            PendingActivity activity = batch.get(userId);
+            Update update = new Update().max("lastSeenAt", activity.lastSeenAt());
+            if (activity.lastLoginAt() != null) {
+                update.max("lastLoginAt", activity.lastLoginAt());
+            }
+            operations.updateOne(Query.query(Criteria.where("_id").is(userId)), update);
+        }
+        try {
+            operations.execute();
+            userRespCache.invalidateAll(userIds);
+        }
+        catch (RuntimeException e) {
+            // $max makes a replay harmless, so put the batch back for the next flush
+            log.warn("Could not flush activity for {} users: {}", userIds.size(), e.getMessage());
+            batch.forEach((userId, activity) -> pending.merge(userId, activity, PendingActivity::latest));
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+
+    private record PendingActivity(LocalDateTime lastLoginAt, LocalDateTime lastSeenAt) {
+
+        PendingActivity latest(PendingActivity other) {
+            return new PendingActivity(later(lastLoginAt, other.lastLoginAt), later(lastSeenAt, other.lastSeenAt));
+        }
+
+        private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            return a.isAfter(b) ? a : b;
+        }
+    }
+}
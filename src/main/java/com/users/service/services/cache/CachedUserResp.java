@@ -0,0 +1,19 @@
+package com.users.service.services.cache;
+
+import com.users.service.dtos.UserResp;
+import lombok.Getter;
+
+// A cached user together with its serialized JSON and a strong ETag derived from exactly those bytes
+@Getter
+public class CachedUserResp {
+
+    private final UserResp user;
+    private final byte[] json;
+    private final String etag;
+
+    CachedUserResp(UserResp user, byte[] json, String etag) {
+        this.user = user;
+        this.json = json;
+        this.etag = etag;
+    }
+}
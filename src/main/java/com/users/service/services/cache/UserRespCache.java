@@ -0,0 +1,97 @@
+package com.users.service.services.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.users.service.dtos.UserResp;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Read cache for single-user lookups. Writes through this service invalidate their entry, changes made
+// elsewhere (other instances, activity timestamps) show up once the entry expires.
+@Component
+public class UserRespCache {
+
+    private final Cache<String, CachedUserResp> cache;
+    private final ObjectMapper objectMapper;
+
+    public UserRespCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${users.cache.max-size:10000}") long maxSize,
+                         @Value("${users.cache.ttl:PT60S}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    public CachedUserResp get(String id, Function<String, UserResp> loader) {
+        return cache.get(id, key -> toCached(loader.apply(key)));
+    }
+
+    // Bulk lookup: the ids missing from the cache go to the loader in one call, ids it does not return are left
+    // out of the result and are not cached
+    public Map<String, CachedUserResp> getAll(Collection<String> ids, Function<Set<String>, Collection<UserResp>> loader) {
+        return cache.getAll(ids, missing -> {
+            Map<String, CachedUserResp> loaded = new HashMap<>();
+            for (UserResp user : loader.apply(Set.copyOf(missing))) {
+                loaded.put(user.getId(), toCached(user));
+            }
+            return loaded;
+        });
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<String> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    // Validator for a list of cached users, hashed over their ETags in order, so it changes whenever a member's JSON
+    // does and never needs the list serialized
+    public String etagOf(List<CachedUserResp> users, String qualifier) {
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        source.writeBytes(qualifier.getBytes(StandardCharsets.UTF_8));
+        for (CachedUserResp user : users) {
+            source.writeBytes(user.getEtag().getBytes(StandardCharsets.UTF_8));
+        }
+        return etagOf(source.toByteArray());
+    }
+
+    private CachedUserResp toCached(UserResp user) {
+        byte[] json = serialize(user);
+        return new CachedUserResp(user, json, etagOf(json));
+    }
+
+    // Strong validator: equal only for byte-identical representations
+    private static String etagOf(byte[] representation) {
+        return "\"" + DigestUtils.md5DigestAsHex(representation) + "\"";
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize user response", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.users.service.services.image;
+
+import org.springframework.web.multipart.MultipartFile;
+
+public interface ImageProcessingService {
+    ProcessedImage processProfilePicture(MultipartFile file);
+}
@@ -0,0 +1,16 @@
+package com.users.service.services.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProcessedImage {
+    private final byte[] bytes;
+    private final String contentType;
+    private final String extension;
+
+    public long getSize() {
+        return bytes.length;
+    }
+}
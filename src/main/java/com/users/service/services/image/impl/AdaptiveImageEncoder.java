@@ -0,0 +1,218 @@
+package com.users.service.services.image.impl;
+
+import com.users.service.metrics.ImagePipelineMetrics;
+import com.users.service.services.image.ProcessedImage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Encodes a profile picture derivative as small as its byte budget allows.
+ * <p>
+ * JPEG quality is searched between the configured bounds with at most {@code max-trials} encodes: the highest quality
+ * found that fits the budget wins, and {@code min-quality} acts as the visual floor when nothing fits. Opaque PNG/BMP
+ * input becomes JPEG when that fits the budget, otherwise it is also encoded as maximally deflated PNG and the smaller
+ * one is kept. Output never carries metadata, only what the writers emit for an image without any.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdaptiveImageEncoder {
+
+    private static final String JPEG = "jpeg";
+    private static final String PNG = "png";
+    private static final String GIF = "gif";
+
+    //ImageWriter setup is not free and writers are not thread safe, so each thread keeps its own
+    private static final ThreadLocal<ImageWriter> JPEG_WRITER = ThreadLocal.withInitial(() -> writerFor(JPEG));
+    private static final ThreadLocal<ImageWriter> PNG_WRITER = ThreadLocal.withInitial(() -> writerFor(PNG));
+
+    private final ImagePipelineMetrics metrics;
+
+    @Value("${image.profile-picture.target-bytes:153600}")
+    private long targetBytes;
+
+    @Value("${image.profile-picture.min-quality:0.5}")
+    private float minQuality;
+
+    @Value("${image.profile-picture.max-quality:0.75}")
+    private float maxQuality;
+
+    @Value("${image.profile-picture.max-trials:3}")
+    private int maxTrials;
+
+    @Value("${image.profile-picture.convert-opaque-to-jpeg:true}")
+    private boolean convertOpaqueToJpeg;
+
+    public ProcessedImage encode(BufferedImage image, String sourceFormat) throws IOException {
+        return encode(image, sourceFormat, true);
+    }
+
+    // Same encode without recording metrics, for warmup runs that must not show up as uploads
+    public ProcessedImage encodeUnrecorded(BufferedImage image, String sourceFormat) throws IOException {
+        return encode(image, sourceFormat, false);
+    }
+
+    private ProcessedImage encode(BufferedImage image, String sourceFormat, boolean recordMetrics) throws IOException {
+        if (JPEG.equals(sourceFormat)) {
+            return jpeg(encodeJpegToBudget(toRgb(image), recordMetrics));
+        }
+        if (GIF.equals(sourceFormat)) {
+            byte[] gif = encodeWith(GIF, image);
+            if (gif != null) {
+                return new ProcessedImage(gif, "image/gif", ".gif");
+            }
+        }
+
+        if (convertOpaqueToJpeg && isOpaque(image)) {
+            byte[] jpeg = encodeJpegToBudget(toRgb(image), recordMetrics);
+            // A level 9 deflate of a photo costs far more than the JPEG search, only pay for it when JPEG missed
+            if (jpeg.length <= targetBytes) {
+                return jpeg(jpeg);
+            }
+            byte[] png = encodePng(image);
+            return jpeg.length < png.length ? jpeg(jpeg) : new ProcessedImage(png, "image/png", ".png");
+        }
+        return new ProcessedImage(encodePng(image), "image/png", ".png");
+    }
+
+    private static ProcessedImage jpeg(byte[] bytes) {
+        return new ProcessedImage(bytes, "image/jpeg", ".jpg");
+    }
+
+    /*
+     * Log of the JPEG size is close to linear in quality and bends upwards, so interpolating it between a quality that
+     * fits and one that does not predicts a quality that just fits. Max quality is tried first, then the floor, then
+     * the interpolated quality, and further trials keep narrowing that bracket.
+     */
+    private byte[] encodeJpegToBudget(BufferedImage image, boolean recordMetrics) throws IOException {
+        int trials = 1;
+        byte[] best = encodeJpeg(image, maxQuality);
+        if (best.length > targetBytes && maxTrials > 1) {
+            // Nothing below the floor is tried, so the floor is the answer when even it is over budget
+            float high = maxQuality;
+            double highSize = Math.log(best.length);
+            float low = minQuality;
+            best = encodeJpeg(image, low);
+            trials++;
+            double lowSize = Math.log(best.length);
+            double target = Math.log(targetBytes);
+            while (best.length <= targetBytes && trials < maxTrials && high - low > 0.02f) {
+                float quality = (float) (low + (high - low) * (target - lowSize) / (highSize - lowSize));
+                if (quality - low < 0.01f) {
+                    break;
+                }
+                byte[] candidate = encodeJpeg(image, quality);
+                trials++;
+                if (candidate.length <= targetBytes) {
+                    best = candidate;
+                    low = quality;
+                    lowSize = Math.log(candidate.length);
+                }
+                else {
+                    high = quality;
+                    highSize = Math.log(candidate.length);
+                }
+            }
+        }
+        if (recordMetrics) {
+            metrics.recordEncodeTrials(trials);
+        }
+        return best;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = JPEG_WRITER.get();
+        ImageWriteParam params = writer.getDefaultWriteParam();
+        params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        params.setCompressionQuality(quality);
+        params.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+        return write(writer, image, params, image.getWidth() * image.getHeight() / 8);
+    }
+
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ImageWriter writer = PNG_WRITER.get();
+        ImageWriteParam params = writer.getDefaultWriteParam();
+        if (params.canWriteCompressed()) {
+            // 0.0 maps to the strongest deflate level
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(0.0f);
+        }
+        return write(writer, image, params, image.getWidth() * image.getHeight() / 2);
+    }
+
+    // Memory-backed stream, ImageIO.createImageOutputStream may otherwise spill to a temp file
+    private static byte[] write(ImageWriter writer, BufferedImage image, ImageWriteParam params, int sizeHint) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(sizeHint, 8192));
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), params);
+        }
+        finally {
+            writer.reset();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] encodeWith(String formatName, BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        return ImageIO.write(image, formatName, outputStream) ? outputStream.toByteArray() : null;
+    }
+
+    private static ImageWriter writerFor(String formatName) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IllegalStateException("No image writer found for format: " + formatName);
+        }
+        return writers.next();
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return true;
+        }
+        WritableRaster alpha = image.getAlphaRaster();
+        if (alpha == null) {
+            return image.getTransparency() == Transparency.OPAQUE;
+        }
+        int opaqueValue = (1 << alpha.getSampleModel().getSampleSize(0)) - 1;
+        int width = alpha.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < alpha.getHeight(); y++) {
+            alpha.getSamples(0, y, width, 1, 0, row);
+            for (int value : row) {
+                if (value != opaqueValue) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // The JPEG writer only takes 3-channel or grey input, anything else is flattened onto white
+    private static BufferedImage toRgb(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+}
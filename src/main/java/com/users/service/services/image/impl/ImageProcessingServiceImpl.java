@@ -0,0 +1,163 @@
+package com.users.service.services.image.impl;
+
+import com.users.service.exceptions.InvalidFileTypeException;
+import com.users.service.metrics.ImagePipelineMetrics;
+import com.users.service.services.image.ImageProcessingService;
+import com.users.service.services.image.ProcessedImage;
+import com.users.service.services.image.resample.Resampler;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ImageProcessingServiceImpl implements ImageProcessingService {
+
+    private final ImagePipelineMetrics metrics;
+    private final AdaptiveImageEncoder imageEncoder;
+    private final Resampler resampler;
+    private final AtomicLong processedCounter = new AtomicLong();
+
+    //Allowed image types
+    private static final List<String> ALLOWED_CONTENT_TYPES = List.of("image/jpeg", "image/png", "image/gif", "image/bmp", "image/webp");
+
+    //Maximum file bytes (5MB)
+    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+
+
+    //maximum image dimensions
+    private static final int MAX_WIDTH = 2048;
+    private static final int MAX_HEIGHT = 2048;
+
+    //Only one in this many uploads is traced at debug level
+    private static final int DEBUG_LOG_SAMPLE_RATE = 100;
+
+
+    @Override
+    public ProcessedImage processProfilePicture(MultipartFile file) {
+        boolean trace = sampleDebugLog();
+
+        Timer.Sample validateSample = metrics.start();
+        validateImageFile(file);
+        metrics.stopStage(validateSample, ImagePipelineMetrics.STAGE_VALIDATE);
+
+        // Decode once, a file that does not decode is rejected as invalid
+        Timer.Sample decodeSample = metrics.start();
+        BufferedImage originalImage = decodeImage(file);
+        metrics.stopStage(decodeSample, ImagePipelineMetrics.STAGE_DECODE);
+
+        try {
+            Timer.Sample resizeSample = metrics.start();
+            BufferedImage resizedImage = resizeImage(originalImage);
+            metrics.stopStage(resizeSample, ImagePipelineMetrics.STAGE_RESIZE);
+
+            Timer.Sample encodeSample = metrics.start();
+            ProcessedImage processedImage = imageEncoder.encode(resizedImage, getFormatName(file.getContentType()));
+            metrics.stopStage(encodeSample, ImagePipelineMetrics.STAGE_ENCODE);
+
+            metrics.recordSizes(file.getSize(), processedImage.getSize());
+            if (trace) {
+                log.debug("Processed image {}x{} -> {}x{}, {} {} bytes -> {} {} bytes",
+                        originalImage.getWidth(), originalImage.getHeight(),
+                        resizedImage.getWidth(), resizedImage.getHeight(),
+                        file.getContentType(), file.getSize(), processedImage.getContentType(), processedImage.getSize());
+            }
+            return processedImage;
+        }
+        catch (IOException e) {
+            log.error("Could not process profile picture: {}", e.getMessage(), e);
+            throw new RuntimeException("Could not process profile picture", e);
+        }
+    }
+
+    private boolean sampleDebugLog() {
+        return log.isDebugEnabled() && processedCounter.getAndIncrement() % DEBUG_LOG_SAMPLE_RATE == 0;
+    }
+
+    private String getFormatName(String contentType) {
+        if (contentType == null) {
+            return "jpeg";
+        }
+
+        switch (contentType.toLowerCase()) {
+            case "image/jpeg":
+                return "jpeg";
+            case "image/png":
+                return "png";
+            case "image/gif":
+                return "gif";
+            case "image/bmp":
+                return "bmp";
+            case "image/webp":
+                return "webp";
+            default:
+                return "jpeg";
+        }
+    }
+
+    private BufferedImage resizeImage(BufferedImage originalImage) {
+        int originalWidth = originalImage.getWidth();
+        int originalHeight = originalImage.getHeight();
+
+        // validate images allowed max width and height
+        if (originalWidth <= MAX_WIDTH && originalHeight <= MAX_HEIGHT) {
+            return originalImage;
+        }
+
+        // Calculate new dimensions while maintaining aspect ratio
+        double aspectRatio = (double) originalWidth / originalHeight;
+        int newWidth, newHeight;
+
+        if (originalWidth > originalHeight) {
+            newWidth = MAX_WIDTH;
+            newHeight = Math.max(1, (int) (MAX_WIDTH / aspectRatio));
+        }
+        else {
+            newHeight = MAX_HEIGHT;
+            newWidth = Math.max(1, (int) (MAX_HEIGHT * aspectRatio));
+        }
+
+        return resampler.resize(originalImage, newWidth, newHeight);
+    }
+
+    private void validateImageFile(MultipartFile file) {
+        //check if file is empty
+        if (file.isEmpty()) {
+            throw new InvalidFileTypeException("File is empty");
+        }
+
+        //check file size
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new InvalidFileTypeException("File is too large");
+        }
+
+        //check content type
+        String contentType = file.getContentType();
+        if (!ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            throw new InvalidFileTypeException("Only image files are supported (JPEG, PNG, GIF, BMP, WebP)");
+        }
+    }
+
+    private BufferedImage decodeImage(MultipartFile file) {
+        try {
+            BufferedImage image = ImageIO.read(file.getInputStream());
+            if (image == null) {
+                throw new InvalidFileTypeException("Invalid image file");
+            }
+            return image;
+        }
+        catch (IOException e) {
+            log.error("Error reading image file: {}", e.getMessage(), e);
+            throw new InvalidFileTypeException("Error reading image file");
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.users.service.services.image.resample;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.stream.IntStream;
+
+/**
+ * Separable Lanczos-3 resampler working on raw pixel arrays.
+ * <p>
+ * The output is produced in bands of rows, in parallel on the common fork-join pool for larger images. Each band
+ * reads the source rows it needs, filters them horizontally into a small float buffer per channel and then filters
+ * that buffer vertically into the output rows. Alpha is premultiplied while filtering so transparent pixels do not
+ * bleed colour into their neighbours. Any source type is accepted, TYPE_CUSTOM included, and the result is always
+ * TYPE_INT_RGB or TYPE_INT_ARGB.
+ */
+public class LanczosResampler implements Resampler {
+
+    private static final int LOBES = 3;
+
+    //Output rows per task
+    private static final int BAND_ROWS = 32;
+
+    //Below this many output pixels the fork-join overhead is not worth it
+    private static final long PARALLEL_THRESHOLD = 256L * 256L;
+
+    private final ResampleKernel kernel;
+
+    public LanczosResampler(ResampleKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public BufferedImage resize(BufferedImage source, int width, int height) {
+        boolean alpha = source.getColorModel().hasAlpha();
+        Contributions columns = Contributions.of(source.getWidth(), width);
+        Contributions rows = Contributions.of(source.getHeight(), height);
+        GatherTable gatherTable = columns.toGatherTable();
+
+        BufferedImage output = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] outputPixels = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
+        PixelReader reader = PixelReader.of(source);
+
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream bandStream = IntStream.range(0, bands);
+        if ((long) width * height >= PARALLEL_THRESHOLD) {
+            bandStream = bandStream.parallel();
+        }
+        bandStream.forEach(band -> resizeBand(band, reader, source.getWidth(), width, height, alpha,
+                gatherTable, rows, outputPixels));
+        return output;
+    }
+
+    private void resizeBand(int band, PixelReader reader, int sourceWidth, int width, int height, boolean alpha,
+                            GatherTable gatherTable, Contributions rows, int[] outputPixels) {
+        int firstOutputRow = band * BAND_ROWS;
+        int lastOutputRow = Math.min(height, firstOutputRow + BAND_ROWS);
+        int firstSourceRow = rows.start[firstOutputRow];
+        int lastSourceRow = firstSourceRow;
+        for (int y = firstOutputRow; y < lastOutputRow; y++) {
+            lastSourceRow = Math.max(lastSourceRow, rows.start[y] + rows.count[y] - 1);
+        }
+        int sourceRows = lastSourceRow - firstSourceRow + 1;
+        int channels = alpha ? 4 : 3;
+
+        // Horizontal pass: source rows of this band -> float planes of output width
+        float[][] filtered = new float[channels][sourceRows * width];
+        float[][] sourceRow = new float[channels][sourceWidth];
+        int[] argb = new int[sourceWidth];
+        for (int r = 0; r < sourceRows; r++) {
+            reader.readRow(firstSourceRow + r, argb);
+            unpack(argb, sourceRow, alpha);
+            for (int c = 0; c < channels; c++) {
+                kernel.horizontal(sourceRow[c], gatherTable.indices, gatherTable.weights, filtered[c], r * width, width);
+            }
+        }
+
+        // Vertical pass: float planes -> packed output rows
+        float[][] outputRow = new float[channels][width];
+        for (int y = firstOutputRow; y < lastOutputRow; y++) {
+            for (int c = 0; c < channels; c++) {
+                kernel.vertical(filtered[c], width, rows.start[y] - firstSourceRow,
+                        rows.weights, y * rows.maxTaps, rows.count[y], outputRow[c], 0);
+            }
+            pack(outputRow, outputPixels, y * width, width, alpha);
+        }
+    }
+
+    private static void unpack(int[] argb, float[][] planes, boolean alpha) {
+        float[] red = planes[0];
+        float[] green = planes[1];
+        float[] blue = planes[2];
+        if (!alpha) {
+            for (int x = 0; x < argb.length; x++) {
+                int pixel = argb[x];
+                red[x] = (pixel >> 16) & 0xFF;
+                green[x] = (pixel >> 8) & 0xFF;
+                blue[x] = pixel & 0xFF;
+            }
+            return;
+        }
+        float[] alphaPlane = planes[3];
+        for (int x = 0; x < argb.length; x++) {
+            int pixel = argb[x];
+            float a = (pixel >>> 24) / 255f;
+            alphaPlane[x] = pixel >>> 24;
+            red[x] = ((pixel >> 16) & 0xFF) * a;
+            green[x] = ((pixel >> 8) & 0xFF) * a;
+            blue[x] = (pixel & 0xFF) * a;
+        }
+    }
+
+    private static void pack(float[][] planes, int[] output, int offset, int width, boolean alpha) {
+        float[] red = planes[0];
+        float[] green = planes[1];
+        float[] blue = planes[2];
+        if (!alpha) {
+            for (int x = 0; x < width; x++) {
+                output[offset + x] = 0xFF000000 | (clamp(red[x]) << 16) | (clamp(green[x]) << 8) | clamp(blue[x]);
+            }
+            return;
+        }
+        float[] alphaPlane = planes[3];
+        for (int x = 0; x < width; x++) {
+            int a = clamp(alphaPlane[x]);
+            if (a == 0) {
+                output[offset + x] = 0;
+                continue;
+            }
+            float unpremultiply = 255f / a;
+            output[offset + x] = (a << 24) | (clamp(red[x] * unpremultiply) << 16)
+                    | (clamp(green[x] * unpremultiply) << 8) | clamp(blue[x] * unpremultiply);
+        }
+    }
+
+    private static int clamp(float value) {
+        int rounded = Math.round(value);
+        return rounded < 0 ? 0 : Math.min(rounded, 255);
+    }
+
+    private static double lanczos(double x) {
+        if (x == 0.0) {
+            return 1.0;
+        }
+        if (x <= -LOBES || x >= LOBES) {
+            return 0.0;
+        }
+        double piX = Math.PI * x;
+        return LOBES * Math.sin(piX) * Math.sin(piX / LOBES) / (piX * piX);
+    }
+
+    // Source range and normalized weights for every output index along one axis,
+    // weights are stored with a stride of maxTaps
+    private static final class Contributions {
+
+        final int[] start;
+        final int[] count;
+        final float[] weights;
+        final int maxTaps;
+
+        private Contributions(int[] start, int[] count, float[] weights, int maxTaps) {
+            this.start = start;
+            this.count = count;
+            this.weights = weights;
+            this.maxTaps = maxTaps;
+        }
+
+        static Contributions of(int sourceSize, int targetSize) {
+            double scale = (double) targetSize / sourceSize;
+            // When shrinking, the kernel is stretched so every source pixel contributes
+            double filterScale = Math.min(scale, 1.0);
+            double support = LOBES / filterScale;
+            int maxTaps = (int) Math.ceil(support) * 2 + 1;
+
+            int[] start = new int[targetSize];
+            int[] count = new int[targetSize];
+            float[] weights = new float[targetSize * maxTaps];
+            for (int i = 0; i < targetSize; i++) {
+                double center = (i + 0.5) / scale;
+                int first = Math.max((int) (center - support + 0.5), 0);
+                int last = Math.min((int) (center + support + 0.5), sourceSize);
+                int taps = Math.min(last - first, maxTaps);
+
+                double total = 0.0;
+                for (int k = 0; k < taps; k++) {
+                    double weight = lanczos((first + k - center + 0.5) * filterScale);
+                    weights[i * maxTaps + k] = (float) weight;
+                    total += weight;
+                }
+                if (total != 0.0) {
+                    for (int k = 0; k < taps; k++) {
+                        weights[i * maxTaps + k] = (float) (weights[i * maxTaps + k] / total);
+                    }
+                }
+                start[i] = first;
+                count[i] = taps;
+            }
+            return new Contributions(start, count, weights, maxTaps);
+        }
+
+        // Tap-major index and weight tables so a whole run of outputs can be gathered at once,
+        // missing taps point at a valid pixel with weight zero
+        GatherTable toGatherTable() {
+            int targetSize = start.length;
+            int[][] indices = new int[maxTaps][targetSize];
+            float[][] tapWeights = new float[maxTaps][targetSize];
+            for (int i = 0; i < targetSize; i++) {
+                for (int k = 0; k < maxTaps; k++) {
+                    if (k < count[i]) {
+                        indices[k][i] = start[i] + k;
+                        tapWeights[k][i] = weights[i * maxTaps + k];
+                    }
+                    else {
+                        indices[k][i] = start[i];
+                    }
+                }
+            }
+            return new GatherTable(indices, tapWeights);
+        }
+    }
+
+    private record GatherTable(int[][] indices, float[][] weights) {
+    }
+
+    // Reads one row as packed non-premultiplied ARGB, straight from the data buffer for the common types
+    private interface PixelReader {
+
+        void readRow(int y, int[] argb);
+
+        static PixelReader of(BufferedImage image) {
+            Raster raster = image.getRaster();
+            boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+            int type = image.getType();
+            if (untranslated && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)) {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int offset = raster.getDataBuffer().getOffset();
+                int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+                int opaque = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+                return (y, argb) -> {
+                    int rowOffset = offset + y * stride;
+                    for (int x = 0; x < argb.length; x++) {
+                        argb[x] = data[rowOffset + x] | opaque;
+                    }
+                };
+            }
+            if (untranslated && (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)) {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+                int offset = raster.getDataBuffer().getOffset();
+                int stride = sampleModel.getScanlineStride();
+                int pixelStride = sampleModel.getPixelStride();
+                int[] bandOffsets = sampleModel.getBandOffsets();
+                boolean hasAlpha = type == BufferedImage.TYPE_4BYTE_ABGR;
+                return (y, argb) -> {
+                    int position = offset + y * stride;
+                    for (int x = 0; x < argb.length; x++, position += pixelStride) {
+                        int a = hasAlpha ? data[position + bandOffsets[3]] & 0xFF : 0xFF;
+                        argb[x] = (a << 24)
+                                | ((data[position + bandOffsets[0]] & 0xFF) << 16)
+                                | ((data[position + bandOffsets[1]] & 0xFF) << 8)
+                                | (data[position + bandOffsets[2]] & 0xFF);
+                    }
+                };
+            }
+            return (y, argb) -> image.getRGB(0, y, argb.length, 1, argb, 0, argb.length);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.users.service.services.image.resample;
+
+// Inner loops of the separable resampler, implemented once with the Vector API and once as plain loops
+public interface ResampleKernel {
+
+    // dst[dstOffset + i] = sum over k of weights[k][i] * src[indices[k][i]], for i in [0, length)
+    void horizontal(float[] src, int[][] indices, float[][] weights, float[] dst, int dstOffset, int length);
+
+    // dst[dstOffset + i] = sum over k of weights[weightOffset + k] * src[(firstRow + k) * rowLength + i], for i in [0, rowLength)
+    void vertical(float[] src, int rowLength, int firstRow, float[] weights, int weightOffset, int taps, float[] dst, int dstOffset);
+}
@@ -0,0 +1,7 @@
+package com.users.service.services.image.resample;
+
+import java.awt.image.BufferedImage;
+
+public interface Resampler {
+    BufferedImage resize(BufferedImage source, int width, int height);
+}
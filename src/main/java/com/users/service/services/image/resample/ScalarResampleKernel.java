@@ -0,0 +1,31 @@
+package com.users.service.services.image.resample;
+
+import java.util.Arrays;
+
+public class ScalarResampleKernel implements ResampleKernel {
+
+    @Override
+    public void horizontal(float[] src, int[][] indices, float[][] weights, float[] dst, int dstOffset, int length) {
+        int taps = indices.length;
+        for (int i = 0; i < length; i++) {
+            float sum = 0f;
+            for (int k = 0; k < taps; k++) {
+                sum += weights[k][i] * src[indices[k][i]];
+            }
+            dst[dstOffset + i] = sum;
+        }
+    }
+
+    // Tap-major so each inner loop is a contiguous multiply-add the JIT can auto-vectorize
+    @Override
+    public void vertical(float[] src, int rowLength, int firstRow, float[] weights, int weightOffset, int taps, float[] dst, int dstOffset) {
+        Arrays.fill(dst, dstOffset, dstOffset + rowLength, 0f);
+        for (int k = 0; k < taps; k++) {
+            float weight = weights[weightOffset + k];
+            int offset = (firstRow + k) * rowLength;
+            for (int i = 0; i < rowLength; i++) {
+                dst[dstOffset + i] += weight * src[offset + i];
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.users.service.services.image.resample;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Needs --add-modules jdk.incubator.vector at compile and run time, see ResamplerFactory for the fallback.
+// Multiplies and adds separately rather than with fma, so results match ScalarResampleKernel bit for bit.
+public class VectorResampleKernel implements ResampleKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void horizontal(float[] src, int[][] indices, float[][] weights, float[] dst, int dstOffset, int length) {
+        int taps = indices.length;
+        int i = 0;
+        int upperBound = SPECIES.loopBound(length);
+        for (; i < upperBound; i += SPECIES.length()) {
+            FloatVector sum = FloatVector.zero(SPECIES);
+            for (int k = 0; k < taps; k++) {
+                FloatVector pixels = FloatVector.fromArray(SPECIES, src, 0, indices[k], i);
+                sum = pixels.mul(FloatVector.fromArray(SPECIES, weights[k], i)).add(sum);
+            }
+            sum.intoArray(dst, dstOffset + i);
+        }
+        for (; i < length; i++) {
+            float sum = 0f;
+            for (int k = 0; k < taps; k++) {
+                sum += weights[k][i] * src[indices[k][i]];
+            }
+            dst[dstOffset + i] = sum;
+        }
+    }
+
+    // Output-major so the running sum stays in a register across all taps
+    @Override
+    public void vertical(float[] src, int rowLength, int firstRow, float[] weights, int weightOffset, int taps, float[] dst, int dstOffset) {
+        int i = 0;
+        int upperBound = SPECIES.loopBound(rowLength);
+        for (; i < upperBound; i += SPECIES.length()) {
+            FloatVector sum = FloatVector.zero(SPECIES);
+            int offset = firstRow * rowLength + i;
+            for (int k = 0; k < taps; k++, offset += rowLength) {
+                FloatVector weight = FloatVector.broadcast(SPECIES, weights[weightOffset + k]);
+                sum = FloatVector.fromArray(SPECIES, src, offset).mul(weight).add(sum);
+            }
+            sum.intoArray(dst, dstOffset + i);
+        }
+        for (; i < rowLength; i++) {
+            float sum = 0f;
+            int offset = firstRow * rowLength + i;
+            for (int k = 0; k < taps; k++, offset += rowLength) {
+                sum += weights[weightOffset + k] * src[offset];
+            }
+            dst[dstOffset + i] = sum;
+        }
+    }
+}
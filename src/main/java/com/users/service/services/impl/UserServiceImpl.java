@@ -4,29 +4,53 @@ import com.users.service.configs.JwtTokenProvider;
 import com.users.service.documents.User;
 import com.users.service.dtos.*;
 import com.users.service.exceptions.DuplicateUserException;
+import com.users.service.exceptions.ProfilePictureNotFoundException;
 import com.users.service.exceptions.UserNotFoundException;
+import com.users.service.metrics.AuthMetrics;
 import com.users.service.repositories.UserRepository;
 import com.users.service.services.UserService;
+import com.users.service.services.activity.UserActivityService;
+import com.users.service.services.cache.CachedUserResp;
+import com.users.service.services.cache.UserRespCache;
+import com.users.service.services.image.ImageProcessingService;
+import com.users.service.services.image.ProcessedImage;
 import com.users.service.services.objectstore.ObjectStorageService;
+import com.users.service.services.objectstore.ProfilePictureDeletionService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ImageProcessingService imageProcessingService;
     private final ObjectStorageService objectStorageService;
+    private final ProfilePictureDeletionService profilePictureDeletionService;
+    private final AuthMetrics authMetrics;
+    private final UserActivityService userActivityService;
+    private final UserRespCache userRespCache;
+    private final MongoTemplate mongoTemplate;
     private final Random random = new Random();
 
 
@@ -46,11 +70,13 @@ public class UserServiceImpl implements UserService {
     public UserRegistrationResp registerUser(UserRegistrationDTO request) {
         // Check if username already exists
         if (userRepository.existsByUsername(request.getUsername())) {
+            authMetrics.recordOutcome(AuthMetrics.OPERATION_REGISTER, AuthMetrics.OUTCOME_DUPLICATE_USERNAME);
             throw new DuplicateUserException("Username already exists");
         }
 
         // Check if email already exists
         if (userRepository.existsByEmail(request.getEmail())) {
+            authMetrics.recordOutcome(AuthMetrics.OPERATION_REGISTER, AuthMetrics.OUTCOME_DUPLICATE_EMAIL);
             throw new DuplicateUserException("Email already exists");
         }
 
@@ -65,10 +91,13 @@ public class UserServiceImpl implements UserService {
         user.setLastName(request.getLastName());
         user.setCreatedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
+        user.setLastSeenAt(user.getCreatedAt());
         user.setActive(true);
 
         // Save user
         userRepository.save(user);
+        userRespCache.invalidate(userId);
+        authMetrics.recordOutcome(AuthMetrics.OPERATION_REGISTER, AuthMetrics.OUTCOME_SUCCESS);
 
         // Generate JWT token
         String token = jwtTokenProvider.generateToken(user.getUsername(), List.of("ROLE_USER"));
@@ -80,12 +109,18 @@ public class UserServiceImpl implements UserService {
     public UserLoginResp loginUser(UserLoginReq request) {
         // Find user by username
         User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new UserNotFoundException("Invalid username or password"));
+                .orElseThrow(() -> {
+                    authMetrics.recordOutcome(AuthMetrics.OPERATION_LOGIN, AuthMetrics.OUTCOME_UNKNOWN_USER);
+                    return new UserNotFoundException("Invalid username or password");
+                });
 
         // Verify password
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            authMetrics.recordOutcome(AuthMetrics.OPERATION_LOGIN, AuthMetrics.OUTCOME_BAD_PASSWORD);
             throw new UserNotFoundException("Invalid username or password");
         }
+        authMetrics.recordOutcome(AuthMetrics.OPERATION_LOGIN, AuthMetrics.OUTCOME_SUCCESS);
+        userActivityService.recordLogin(user.getId());
 
         // Generate JWT token
         String token = jwtTokenProvider.generateToken(user.getUsername(), List.of("ROLE_USER"));
@@ -95,16 +130,27 @@ public class UserServiceImpl implements UserService {
     // Get user by ID
     @Override
     public UserResp getUserById(String id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
-        return new UserResp(user);
+        return getCachedUserById(id).getUser();
     }
 
-    // Get all users by IDs with pagination
+    // Get user by ID through the read cache
     @Override
-    public Page<UserResp> getAllUsersByIds(List<String> ids, Pageable pageable) {
-        Page<User> users = userRepository.findAllByIdIn(ids, pageable);
-        return users.map(UserResp::new);
+    public CachedUserResp getCachedUserById(String id) {
+        return userRespCache.get(id, key -> new UserResp(userRepository.findById(key)
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + key))));
+    }
+
+    // Get all users by IDs with pagination, in the order the ids were given. Members come from the read cache,
+    // only the ones missing there are read from Mongo, in one query
+    @Override
+    public Page<CachedUserResp> getAllUsersByIds(List<String> ids, Pageable pageable) {
+        List<String> distinctIds = ids.stream().distinct().toList();
+        Map<String, CachedUserResp> found = userRespCache.getAll(distinctIds,
+                missing -> userRepository.findAllById(missing).stream().map(UserResp::new).toList());
+        List<CachedUserResp> users = distinctIds.stream().map(found::get).filter(Objects::nonNull).toList();
+        int from = (int) Math.min(pageable.getOffset(), users.size());
+        int to = Math.min(from + pageable.getPageSize(), users.size());
+        return new PageImpl<>(users.subList(from, to), pageable, users.size());
     }
 
     // Get all users with pagination
@@ -119,22 +165,54 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
 
-        // Delete old profile picture if exists
-        if (user.getProfileImageUrl() != null) {
-            objectStorageService.deleteProfilePicture(user.getProfileImageUrl());
-        }
+        String previousPictureUrl = user.getProfileImageUrl();
+        userActivityService.recordSeen(userId);
+
+        // Validate, process and compress the image
+        ProcessedImage processedImage = imageProcessingService.processProfilePicture(file);
+        String profilePictureUrl = objectStorageService.newProfilePictureUrl(userId, processedImage.getExtension());
 
-        // Upload new profile picture
-        String profilePictureUrl = objectStorageService.uploadProfilePicture(userId, file);
+        // Recorded before the object is written, so a put that fails after storing, a crash before the user update
+        // or a failed update all leave the object to the sweeper, which removes it unless a user references it
+        profilePictureDeletionService.scheduleOrphanCheck(profilePictureUrl);
+        objectStorageService.storeProfilePicture(profilePictureUrl, processedImage);
 
-        // Update user
+        // Update user. Only the picture fields are written: saving the whole document would put back the activity
+        // timestamps read above and undo an activity flush that landed while the image was processed
         user.setProfileImageUrl(profilePictureUrl);
         user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        Update update = new Update()
+                .set("profileImageUrl", user.getProfileImageUrl())
+                .set("updatedAt", user.getUpdatedAt());
+        if (mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)), update, User.class).getMatchedCount() == 0) {
+            // Deleted meanwhile, the orphan check removes the uploaded object
+            throw new UserNotFoundException("User not found with id: " + userId);
+        }
+        userRespCache.invalidate(userId);
+
+        // Old profile picture is deleted in the background, the user keeps a picture either way
+        if (previousPictureUrl != null) {
+            try {
+                profilePictureDeletionService.scheduleDeletion(previousPictureUrl);
+            }
+            catch (RuntimeException e) {
+                log.error("Could not schedule deletion of {}: {}", previousPictureUrl, e.getMessage(), e);
+            }
+        }
 
         return convertToUserResponse(user);
     }
 
+    @Override
+    public Resource getProfilePicture(String userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
+        if (user.getProfileImageUrl() == null) {
+            throw new ProfilePictureNotFoundException("User has no profile picture: " + userId);
+        }
+        return objectStorageService.loadProfilePicture(user.getProfileImageUrl());
+    }
+
     private UserResp convertToUserResponse(User user) {
         UserResp response = new UserResp();
         response.setId(user.getId());
@@ -1,9 +1,17 @@
 package com.users.service.services.objectstore;
 
-import org.springframework.web.multipart.MultipartFile;
+import com.users.service.services.image.ProcessedImage;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
 
 public interface ObjectStorageService {
     void init();
-    String uploadProfilePicture(String userId, MultipartFile file);
+    //picks the url a new picture will be stored under, nothing is written yet
+    String newProfilePictureUrl(String userId, String extension);
+    void storeProfilePicture(String objectUrl, ProcessedImage image);
     void deleteProfilePicture(String objectUrl);
+    //returns the urls that could not be deleted
+    List<String> deleteProfilePictures(List<String> objectUrls);
+    Resource loadProfilePicture(String objectUrl);
 }
@@ -0,0 +1,9 @@
+package com.users.service.services.objectstore;
+
+public interface ProfilePictureDeletionService {
+    //delete a picture that was replaced or removed, as soon as the sweeper gets to it
+    void scheduleDeletion(String objectUrl);
+    //delete a freshly uploaded picture after a grace period unless a user ends up referencing it
+    void scheduleOrphanCheck(String objectUrl);
+    void sweep();
+}
@@ -0,0 +1,188 @@
+package com.users.service.services.objectstore.impl;
+
+import com.users.service.exceptions.ProfilePictureNotFoundException;
+import com.users.service.metrics.ImagePipelineMetrics;
+import com.users.service.services.image.ProcessedImage;
+import com.users.service.services.objectstore.ObjectStorageService;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Stores objects on local disk for edge deployments and tests, selected with storage.backend=filesystem.
+// Object urls keep the "/{bucket}/{objectName}" shape used by the MinIO backend.
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem")
+@Slf4j
+@RequiredArgsConstructor
+public class FileSystemObjectStorageServiceImpl implements ObjectStorageService {
+
+    @Value("${storage.filesystem.root}")
+    private Path rootDirectory;
+
+    @Value("${storage.filesystem.bucket}")
+    private String bucketName;
+
+    //Flush file contents to disk before the rename that publishes them, and the directory after it
+    @Value("${storage.filesystem.fsync:true}")
+    private boolean fsync;
+
+    private final ImagePipelineMetrics metrics;
+
+
+    @Override
+    public void init() {
+        try {
+            Files.createDirectories(bucketDirectory());
+        }
+        catch (IOException e) {
+            // No logging here, StorageInitializer retries and reports each failed attempt
+            throw new RuntimeException("Could not initialize storage", e);
+        }
+    }
+
+    @Override
+    public String newProfilePictureUrl(String userId, String extension) {
+        return "/" + bucketName + "/profile-pictures/" + userId + "/" + UUID.randomUUID() + extension;
+    }
+
+    @Override
+    public void storeProfilePicture(String objectUrl, ProcessedImage processedImage) {
+        Timer.Sample sample = metrics.start();
+        String outcome = ImagePipelineMetrics.OUTCOME_FAILURE;
+        try {
+            writeAtomically(resolve(extractObjectNameFromUrl(objectUrl)), processedImage.getBytes());
+            outcome = ImagePipelineMetrics.OUTCOME_SUCCESS;
+        }
+        catch (Exception e) {
+            log.error("Could not upload profile picture: {}", e.getMessage(), e);
+            throw new RuntimeException("Could not upload profile picture", e);
+        }
+        finally {
+            // One sample feeds both the per-call storage timer and the pipeline's store stage
+            metrics.stopStorageCall(sample, "putObject", outcome);
+            metrics.stopStage(sample, ImagePipelineMetrics.STAGE_STORE);
+        }
+    }
+
+    @Override
+    public void deleteProfilePicture(String objectUrl) {
+        Timer.Sample sample = metrics.start();
+        try {
+            Files.deleteIfExists(resolve(extractObjectNameFromUrl(objectUrl)));
+            metrics.stopStorageCall(sample, "removeObject", ImagePipelineMetrics.OUTCOME_SUCCESS);
+        }
+        catch (Exception e) {
+            metrics.stopStorageCall(sample, "removeObject", ImagePipelineMetrics.OUTCOME_FAILURE);
+            throw new RuntimeException("Unable to delete profile picture", e);
+        }
+    }
+
+    @Override
+    public List<String> deleteProfilePictures(List<String> objectUrls) {
+        List<String> failed = new ArrayList<>();
+        for (String objectUrl : objectUrls) {
+            try {
+                deleteProfilePicture(objectUrl);
+            }
+            catch (RuntimeException e) {
+                log.warn("Could not delete object {}: {}", objectUrl, e.getMessage());
+                failed.add(objectUrl);
+            }
+        }
+        return failed;
+    }
+
+    // Returns a file-backed resource so the controller can hand it to sendfile/transferTo
+    @Override
+    public Resource loadProfilePicture(String objectUrl) {
+        Path path = resolve(extractObjectNameFromUrl(objectUrl));
+        if (!Files.isRegularFile(path)) {
+            throw new ProfilePictureNotFoundException("Profile picture not found: " + objectUrl);
+        }
+        return new FileSystemResource(path);
+    }
+
+    // Write to a temp file in the target directory, then rename over the final name,
+    // so readers never see a partially written object
+    private void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path directory = target.getParent();
+        boolean newDirectory = Files.notExists(directory);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, ".upload-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (fsync) {
+                // The rename lives in the directory, and a shard created for this object lives in its parents
+                forceDirectory(directory);
+                Path bucketDirectory = bucketDirectory();
+                for (Path parent = directory.getParent(); newDirectory && parent.startsWith(bucketDirectory); parent = parent.getParent()) {
+                    forceDirectory(parent);
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        }
+        catch (IOException e) {
+            // Some platforms (Windows) cannot open a directory, their file systems make the rename durable on their own
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    // Objects are spread over two levels of 256 directories keyed by a hash of the object name,
+    // e.g. <root>/<bucket>/3f/a2/profile-pictures_<userId>_<uuid>.jpg
+    private Path resolve(String objectName) {
+        int hash = objectName.hashCode() * 0x9E3779B9;
+        String firstLevel = String.format("%02x", (hash >>> 24) & 0xFF);
+        String secondLevel = String.format("%02x", (hash >>> 16) & 0xFF);
+        Path bucketDirectory = bucketDirectory();
+        Path path = bucketDirectory.resolve(firstLevel).resolve(secondLevel).resolve(objectName.replace('/', '_')).normalize();
+        if (!path.startsWith(bucketDirectory)) {
+            throw new IllegalArgumentException("Invalid object name: " + objectName);
+        }
+        return path;
+    }
+
+    private Path bucketDirectory() {
+        return rootDirectory.toAbsolutePath().normalize().resolve(bucketName);
+    }
+
+    private String extractObjectNameFromUrl(String url) {
+        return url.substring(url.indexOf(bucketName) + bucketName.length() + 1);
+    }
+}
@@ -0,0 +1,189 @@
+package com.users.service.services.objectstore.impl;
+
+import com.users.service.documents.PendingDeletion;
+import com.users.service.documents.User;
+import com.users.service.repositories.PendingDeletionRepository;
+import com.users.service.repositories.UserRepository;
+import com.users.service.services.objectstore.ObjectStorageService;
+import com.users.service.services.objectstore.ProfilePictureDeletionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Durable outbox of objects to remove from storage, drained in batches by a background sweeper.
+// Before deleting, the sweeper re-checks that no user references the object, which makes it safe
+// to schedule freshly uploaded objects as possible orphans. Each sweep claims its entries with a lease so
+// instances do not work on the same objects, and it only removes or reschedules the version it claimed,
+// so an entry rescheduled in the meantime survives.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProfilePictureDeletionServiceImpl implements ProfilePictureDeletionService {
+
+    private static final String REASON_REPLACED = "replaced";
+    private static final String REASON_ORPHAN_CHECK = "orphan-check";
+
+    //Upper bound on sweep rounds per run so one run cannot hog the scheduler thread
+    private static final int MAX_BATCHES_PER_SWEEP = 20;
+
+    private final PendingDeletionRepository pendingDeletionRepository;
+    private final UserRepository userRepository;
+    private final ObjectStorageService objectStorageService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${storage.deletion.batch-size:500}")
+    private int batchSize;
+
+    @Value("${storage.deletion.orphan-grace:PT10M}")
+    private Duration orphanGrace;
+
+    @Value("${storage.deletion.initial-backoff:PT30S}")
+    private Duration initialBackoff;
+
+    @Value("${storage.deletion.max-backoff:PT1H}")
+    private Duration maxBackoff;
+
+    //How long a claimed entry stays invisible to other sweeps, should the claiming instance die mid-batch
+    @Value("${storage.deletion.lease:PT5M}")
+    private Duration lease;
+
+    @Override
+    public void scheduleDeletion(String objectUrl) {
+        enqueue(objectUrl, REASON_REPLACED, LocalDateTime.now());
+    }
+
+    @Override
+    public void scheduleOrphanCheck(String objectUrl) {
+        enqueue(objectUrl, REASON_ORPHAN_CHECK, LocalDateTime.now().plus(orphanGrace));
+    }
+
+    // Upsert, so scheduling an object again restarts its entry and bumps the version a running sweep holds
+    private void enqueue(String objectUrl, String reason, LocalDateTime notBefore) {
+        Update update = new Update()
+                .set("reason", reason)
+                .set("attempts", 0)
+                .set("nextAttemptAt", notBefore)
+                .set("createdAt", LocalDateTime.now())
+                .unset("lastError")
+                .unset("claimedBy")
+                .inc("version", 1);
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(objectUrl)), update, PendingDeletion.class);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${storage.deletion.sweep-interval-ms:30000}")
+    public void sweep() {
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_SWEEP; i++) {
+                if (sweepBatch() < batchSize) {
+                    return;
+                }
+            }
+        }
+        catch (Exception e) {
+            log.error("Profile picture deletion sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Returns how many due entries were found, claimed by this run or not
+    private int sweepBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingDeletion> candidates = pendingDeletionRepository
+                .findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(now, PageRequest.of(0, batchSize));
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        List<PendingDeletion> due = claim(candidates, now);
+        if (due.isEmpty()) {
+            return candidates.size();
+        }
+
+        Set<String> urls = due.stream().map(PendingDeletion::getObjectUrl).collect(Collectors.toSet());
+        Set<String> referenced = userRepository.findAllByProfileImageUrlIn(urls).stream()
+                .map(User::getProfileImageUrl)
+                .collect(Collectors.toSet());
+
+        List<String> toDelete = new ArrayList<>();
+        for (String url : urls) {
+            if (!referenced.contains(url)) {
+                toDelete.add(url);
+            }
+        }
+
+        Set<String> failed = new HashSet<>();
+        String error = null;
+        if (!toDelete.isEmpty()) {
+            try {
+                failed.addAll(objectStorageService.deleteProfilePictures(toDelete));
+            }
+            catch (RuntimeException e) {
+                failed.addAll(toDelete);
+                error = e.getMessage();
+            }
+        }
+
+        // Objects still in use and objects that were deleted leave the outbox, failures are retried later.
+        // Both only apply to the claimed version, an entry rescheduled since then is left alone.
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PendingDeletion.class);
+        int retries = 0;
+        for (PendingDeletion pendingDeletion : due) {
+            Query claimed = Query.query(Criteria.where("_id").is(pendingDeletion.getObjectUrl())
+                    .and("version").is(pendingDeletion.getVersion()));
+            if (!failed.contains(pendingDeletion.getObjectUrl())) {
+                operations.remove(claimed);
+                continue;
+            }
+            int attempts = pendingDeletion.getAttempts() + 1;
+            operations.updateOne(claimed, new Update()
+                    .set("attempts", attempts)
+                    .set("nextAttemptAt", now.plus(backoff(attempts)))
+                    .set("lastError", error != null ? error : "delete rejected by object storage")
+                    .unset("claimedBy")
+                    .inc("version", 1));
+            retries++;
+        }
+        operations.execute();
+
+        if (retries > 0) {
+            log.warn("Could not delete {} of {} profile pictures, will retry", retries, toDelete.size());
+        }
+        return candidates.size();
+    }
+
+    // Claims the candidates that are still due by moving their nextAttemptAt out by the lease, entries another
+    // instance claimed first are no longer due and are skipped. Reads back exactly what this run claimed.
+    private List<PendingDeletion> claim(List<PendingDeletion> candidates, LocalDateTime now) {
+        String claimToken = UUID.randomUUID().toString();
+        List<String> ids = candidates.stream().map(PendingDeletion::getObjectUrl).toList();
+        Query due = Query.query(Criteria.where("_id").in(ids).and("nextAttemptAt").lte(now));
+        Update update = new Update()
+                .set("claimedBy", claimToken)
+                .set("nextAttemptAt", now.plus(lease))
+                .inc("version", 1);
+        mongoTemplate.updateMulti(due, update, PendingDeletion.class);
+        return pendingDeletionRepository.findByClaimedBy(claimToken);
+    }
+
+    // Exponential backoff: initial, 2x, 4x, ... capped at max
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
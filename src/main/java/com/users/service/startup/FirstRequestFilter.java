@@ -0,0 +1,56 @@
+package com.users.service.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Records how long after JVM start the first application request was served, probes on /actuator don't count
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class FirstRequestFilter extends OncePerRequestFilter {
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final AtomicLong firstRequestUptimeMillis = new AtomicLong(-1);
+
+    public FirstRequestFilter(MeterRegistry meterRegistry) {
+        TimeGauge.builder("users.startup.first.request", firstRequestUptimeMillis, TimeUnit.MILLISECONDS,
+                        uptime -> uptime.get() < 0 ? Double.NaN : uptime.get())
+                .description("Time from JVM start until the first application request was served")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return firstRequestUptimeMillis.get() >= 0
+                || request.getRequestURI().startsWith(request.getContextPath() + ACTUATOR_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        }
+        finally {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (firstRequestUptimeMillis.compareAndSet(-1, uptime)) {
+                log.info("First request {} {} served {} ms after JVM start", request.getMethod(), request.getRequestURI(), uptime);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.users.service.startup;
+
+import com.users.service.configs.JwtTokenProvider;
+import com.users.service.services.image.impl.AdaptiveImageEncoder;
+import com.users.service.services.image.resample.Resampler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the hot paths a few times before the instance takes traffic, so the first real logins and uploads do not pay
+ * for interpretation and JIT compilation.
+ * <p>
+ * Application runners finish before Spring Boot publishes ReadinessState.ACCEPTING_TRAFFIC, so the readiness probe
+ * only turns green once this is done. Synthetic images go through decode, resize and encode for JPEG and for PNG with
+ * alpha, bcrypt hashes and verifies a password, and JWTs are issued and validated. Nothing touches Mongo or object
+ * storage, and nothing is recorded in the image or auth metrics. The whole run is capped by max-duration.
+ * <p>
+ * Opt-in with startup.warmup.enabled: the delay it adds to readiness is larger than what it saves on the first
+ * requests, unless the instance takes heavy uploads right after it starts.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JitWarmupRunner implements ApplicationRunner {
+
+    // Large enough to get the pixel loops compiled, a photo-sized source only makes the warmup slower
+    private static final int SOURCE_WIDTH = 1200;
+    private static final int SOURCE_HEIGHT = 800;
+    private static final String WARMUP_PASSWORD = "warmup-password";
+
+    private final Resampler resampler;
+    private final AdaptiveImageEncoder imageEncoder;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Value("${startup.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${startup.warmup.max-duration:PT30S}")
+    private Duration maxDuration;
+
+    @Value("${startup.warmup.image-iterations:1}")
+    private int imageIterations;
+
+    @Value("${startup.warmup.bcrypt-iterations:2}")
+    private int bcryptIterations;
+
+    @Value("${startup.warmup.jwt-iterations:500}")
+    private int jwtIterations;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        try {
+            long images = warmImages(deadline);
+            long bcrypt = warmBcrypt(deadline);
+            long jwt = warmJwt(deadline);
+            log.info("JIT warmup finished in {} ms (images {} ms, bcrypt {} ms, jwt {} ms)",
+                    millisSince(start), images, bcrypt, jwt);
+        }
+        catch (IOException | RuntimeException e) {
+            // A failed warmup only costs latency, it must not keep the instance from starting
+            log.warn("JIT warmup aborted after {} ms: {}", millisSince(start), e.getMessage(), e);
+        }
+    }
+
+    private long warmImages(long deadline) throws IOException {
+        long start = System.nanoTime();
+        byte[] jpeg = encodeFixture(syntheticImage(BufferedImage.TYPE_INT_RGB), "jpeg");
+        byte[] png = encodeFixture(syntheticImage(BufferedImage.TYPE_INT_ARGB), "png");
+        int width = 1024;
+        int height = width * SOURCE_HEIGHT / SOURCE_WIDTH;
+        for (int i = 0; i < imageIterations && System.nanoTime() < deadline; i++) {
+            imageEncoder.encodeUnrecorded(resampler.resize(ImageIO.read(new ByteArrayInputStream(jpeg)), width, height), "jpeg");
+            imageEncoder.encodeUnrecorded(resampler.resize(ImageIO.read(new ByteArrayInputStream(png)), width, height), "png");
+        }
+        return millisSince(start);
+    }
+
+    // A fresh encoder runs the same BCrypt code without feeding warmup samples into the auth timers
+    private long warmBcrypt(long deadline) {
+        long start = System.nanoTime();
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        for (int i = 0; i < bcryptIterations && System.nanoTime() < deadline; i++) {
+            passwordEncoder.matches(WARMUP_PASSWORD, passwordEncoder.encode(WARMUP_PASSWORD));
+        }
+        return millisSince(start);
+    }
+
+    private long warmJwt(long deadline) {
+        long start = System.nanoTime();
+        for (int i = 0; i < jwtIterations && System.nanoTime() < deadline; i++) {
+            jwtTokenProvider.validateToken(jwtTokenProvider.generateToken("warmup", List.of("USER")));
+        }
+        return millisSince(start);
+    }
+
+    // Gradients with noise, so the encoders see something closer to a photo than a flat fill
+    private static BufferedImage syntheticImage(int type) {
+        BufferedImage image = new BufferedImage(SOURCE_WIDTH, SOURCE_HEIGHT, type);
+        Random random = new Random(42);
+        boolean alpha = type == BufferedImage.TYPE_INT_ARGB;
+        for (int y = 0; y < SOURCE_HEIGHT; y++) {
+            for (int x = 0; x < SOURCE_WIDTH; x++) {
+                int red = (x * 255 / SOURCE_WIDTH + random.nextInt(32)) & 0xFF;
+                int green = (y * 255 / SOURCE_HEIGHT + random.nextInt(32)) & 0xFF;
+                int blue = ((x + y) & 0xFF) ^ random.nextInt(16);
+                int a = alpha ? (x < SOURCE_WIDTH / 2 ? 0xFF : 0x80) : 0xFF;
+                image.setRGB(x, y, (a << 24) | (red << 16) | (green << 8) | blue);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encodeFixture(BufferedImage image, String formatName) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, formatName, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,114 @@
+package com.users.service.startup;
+
+import com.users.service.services.objectstore.ObjectStorageService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Makes sure the storage bucket exists without holding up startup. In async mode the check runs on a background
+// thread and is retried with backoff until it succeeds, init() is idempotent so racing instances are fine.
+// The outcome is reported by the "storage" health indicator.
+@Component("storage")
+@Slf4j
+public class StorageInitializer implements HealthIndicator {
+
+    private final ObjectStorageService objectStorageService;
+
+    //async, sync (fail startup when storage is unreachable) or off
+    @Value("${startup.storage-init.mode:async}")
+    private String mode;
+
+    @Value("${startup.storage-init.initial-backoff:PT1S}")
+    private Duration initialBackoff;
+
+    @Value("${startup.storage-init.max-backoff:PT30S}")
+    private Duration maxBackoff;
+
+    private volatile boolean initialized;
+    private volatile int attempts;
+    private volatile String lastError;
+    private volatile Thread worker;
+
+    public StorageInitializer(ObjectStorageService objectStorageService) {
+        this.objectStorageService = objectStorageService;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void initialize() {
+        switch (mode.toLowerCase()) {
+            case "off":
+                return;
+            case "sync":
+                attempt();
+                if (!initialized) {
+                    throw new IllegalStateException("Could not initialize storage: " + lastError);
+                }
+                return;
+            case "async":
+                worker = Thread.ofPlatform().name("storage-init").daemon().start(this::initializeWithRetry);
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown storage init mode: " + mode);
+        }
+    }
+
+    private void initializeWithRetry() {
+        Duration backoff = initialBackoff;
+        while (!attempt()) {
+            // One line per attempt and no stack trace, storage can stay down for a long time
+            log.warn("Storage not initialized after {} attempts ({}), retrying in {}", attempts, lastError, backoff);
+            try {
+                Thread.sleep(backoff.toMillis());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+        }
+    }
+
+    private boolean attempt() {
+        attempts++;
+        try {
+            objectStorageService.init();
+            initialized = true;
+            lastError = null;
+            log.info("Storage initialized after {} attempts", attempts);
+            return true;
+        }
+        catch (RuntimeException e) {
+            lastError = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            return false;
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (initialized) {
+            return Health.up().build();
+        }
+        if (attempts == 0) {
+            return Health.unknown().withDetail("mode", mode).build();
+        }
+        return Health.down()
+                .withDetail("attempts", attempts)
+                .withDetail("error", String.valueOf(lastError))
+                .build();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.users.service.admission;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private SimpleMeterRegistry meterRegistry;
+	private AdmissionControlFilter filter;
+	private final AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor();
+
+	@BeforeEach
+	void setUp() {
+		AdmissionControlProperties.Route upload = new AdmissionControlProperties.Route();
+		upload.setName("upload");
+		upload.setMethod("POST");
+		upload.setPath("/users/{id}/profile-picture");
+		upload.setLimit(1);
+		AdmissionControlProperties.Route login = new AdmissionControlProperties.Route();
+		login.setName("login");
+		login.setMethod("POST");
+		login.setPath("/users/login");
+		login.setLimiter("aimd");
+		login.setLimit(8);
+		login.setMinLimit(2);
+		login.setMaxLimit(16);
+		login.setLatencyThreshold(Duration.ofMillis(50));
+		login.setBackoffRatio(0.5);
+		AdmissionControlProperties properties = new AdmissionControlProperties();
+		properties.setRoutes(List.of(upload, login));
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new AdmissionControlFilter(properties, objectMapper, meterRegistry);
+	}
+
+	@Test
+	void shedsRequestsOverTheLimitWith503AndRetryAfter() throws Exception {
+		MockHttpServletResponse shed = new MockHttpServletResponse();
+		// The second upload arrives while the first one still holds the only permit
+		FilterChain holdingChain = (request, response) ->
+				filter.doFilter(upload(), shed, new MockFilterChain());
+
+		MockHttpServletResponse admitted = new MockHttpServletResponse();
+		filter.doFilter(upload(), admitted, holdingChain);
+
+		assertThat(admitted.getStatus()).isEqualTo(200);
+		assertThat(shed.getStatus()).isEqualTo(503);
+		assertThat(shed.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		JsonNode body = objectMapper.readTree(shed.getContentAsByteArray());
+		assertThat(body.get("status").asInt()).isEqualTo(503);
+		assertThat(body.get("message").asText()).isNotBlank();
+		assertThat(meterRegistry.get("users.admission.rejected").tag("route", "upload").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void releasesThePermitAfterTheRequest() throws Exception {
+		filter.doFilter(upload(), new MockHttpServletResponse(), new MockFilterChain());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(upload(), response, new MockFilterChain());
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(meterRegistry.get("users.admission.inflight").tag("route", "upload").gauge().value()).isZero();
+	}
+
+	@Test
+	void requestsOutsideTheRoutesAreNotLimited() throws Exception {
+		FilterChain holdingChain = (request, response) -> {
+			MockHttpServletResponse read = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("GET", "/users/42/profile-picture"), read, new MockFilterChain());
+			assertThat(read.getStatus()).isEqualTo(200);
+		};
+
+		filter.doFilter(upload(), new MockHttpServletResponse(), holdingChain);
+	}
+
+	private static MockHttpServletRequest upload() {
+		return new MockHttpServletRequest("POST", "/users/42/profile-picture");
+	}
+
+	@Test
+	void slowRequestBodyDoesNotShrinkTheLimit() throws Exception {
+		// Body transfer happens before DispatcherServlet picks the handler, the handler itself is fast
+		FilterChain slowClient = (request, response) -> {
+			sleep(120);
+			interceptor.preHandle((MockHttpServletRequest) request, (MockHttpServletResponse) response, this);
+			interceptor.afterCompletion((MockHttpServletRequest) request, (MockHttpServletResponse) response, this, null);
+		};
+
+		filter.doFilter(login(), new MockHttpServletResponse(), slowClient);
+
+		assertThat(loginLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void slowHandlerShrinksTheLimit() throws Exception {
+		FilterChain slowHandler = (request, response) -> {
+			interceptor.preHandle((MockHttpServletRequest) request, (MockHttpServletResponse) response, this);
+			sleep(120);
+			interceptor.afterCompletion((MockHttpServletRequest) request, (MockHttpServletResponse) response, this, null);
+		};
+
+		filter.doFilter(login(), new MockHttpServletResponse(), slowHandler);
+
+		assertThat(loginLimit()).isEqualTo(4);
+	}
+
+	@Test
+	void requestThatNeverReachesAHandlerDoesNotMoveTheLimit() throws Exception {
+		FilterChain rejectedBeforeHandler = (request, response) -> {
+			sleep(120);
+			((MockHttpServletResponse) response).setStatus(413);
+		};
+
+		filter.doFilter(login(), new MockHttpServletResponse(), rejectedBeforeHandler);
+
+		assertThat(loginLimit()).isEqualTo(8);
+	}
+
+	private double loginLimit() {
+		return meterRegistry.get("users.admission.limit").tag("route", "login").gauge().value();
+	}
+
+	private static MockHttpServletRequest login() {
+		return new MockHttpServletRequest("POST", "/users/login");
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
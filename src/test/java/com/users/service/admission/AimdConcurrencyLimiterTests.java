@@ -0,0 +1,109 @@
+package com.users.service.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimiterTests {
+
+	private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	void admitsUpToTheLimitAndReleaseFreesAPermit() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 1, 10, THRESHOLD, 0.5);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		limiter.release(FAST, false);
+
+		assertThat(limiter.getInFlight()).isEqualTo(1);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void increasesOnlyWhenTheLimitIsUsed() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(10, 1, 20, THRESHOLD, 0.5);
+
+		// One request in flight out of ten: fast, but the limit is not what holds the route back
+		limiter.tryAcquire();
+		limiter.release(FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(10);
+
+		// Half the limit in flight counts as utilised
+		acquire(limiter, 5);
+		limiter.release(FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(11);
+	}
+
+	@Test
+	void requestWithoutLatencyLeavesTheLimitAlone() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 10, THRESHOLD, 0.5);
+
+		acquire(limiter, 4);
+		limiter.release(-1, false);
+		assertThat(limiter.getLimit()).isEqualTo(4);
+		assertThat(limiter.getInFlight()).isEqualTo(3);
+
+		// An explicit overload still counts
+		limiter.release(-1, true);
+		assertThat(limiter.getLimit()).isEqualTo(2);
+	}
+
+	@Test
+	void increaseIsClampedToMaxLimit() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 5, THRESHOLD, 0.5);
+
+		for (int i = 0; i < 3; i++) {
+			acquire(limiter, 4);
+			for (int j = 0; j < 4; j++) {
+				limiter.release(FAST, false);
+			}
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(5);
+	}
+
+	@Test
+	void decreasesMultiplicativelyOnOverload() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(16, 1, 32, THRESHOLD, 0.5);
+
+		limiter.tryAcquire();
+		limiter.release(FAST, true);
+
+		assertThat(limiter.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void decreasesWhenLatencyExceedsTheThreshold() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(16, 1, 32, THRESHOLD, 0.5);
+
+		limiter.tryAcquire();
+		limiter.release(THRESHOLD + 1, false);
+
+		assertThat(limiter.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void decreaseIsClampedToMinLimit() {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(10, 4, 32, THRESHOLD, 0.5);
+
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire();
+			limiter.release(FAST, true);
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(4);
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	private static void acquire(ConcurrencyLimiter limiter, int permits) {
+		for (int i = 0; i < permits; i++) {
+			assertThat(limiter.tryAcquire()).isTrue();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.users.service.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixedConcurrencyLimiterTests {
+
+	@Test
+	void admitsUpToTheLimit() {
+		FixedConcurrencyLimiter limiter = new FixedConcurrencyLimiter(2);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void releaseFreesAPermit() {
+		FixedConcurrencyLimiter limiter = new FixedConcurrencyLimiter(1);
+		limiter.tryAcquire();
+
+		limiter.release(0, false);
+
+		assertThat(limiter.getInFlight()).isZero();
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void limitIgnoresOverloadAndLatency() {
+		FixedConcurrencyLimiter limiter = new FixedConcurrencyLimiter(4);
+		limiter.tryAcquire();
+
+		limiter.release(Long.MAX_VALUE, true);
+
+		assertThat(limiter.getLimit()).isEqualTo(4);
+	}
+}
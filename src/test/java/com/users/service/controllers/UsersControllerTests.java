@@ -0,0 +1,83 @@
+package com.users.service.controllers;
+
+import com.users.service.services.UserService;
+import com.users.service.services.cache.UserRespCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UsersControllerTests {
+
+	private static final byte[] PICTURE = { 1, 2, 3, 4, 5 };
+
+	@TempDir
+	Path directory;
+
+	private UserService userService;
+	private UsersController controller;
+	private Path file;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		userService = mock(UserService.class);
+		controller = new UsersController(userService, mock(UserRespCache.class));
+		file = Files.write(directory.resolve("picture.jpg"), PICTURE);
+	}
+
+	@Test
+	void fileIsHandedToSendfileWhenTheConnectorSupportsIt() throws Exception {
+		when(userService.getProfilePicture("u1")).thenReturn(new FileSystemResource(file));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		controller.getProfilePicture("u1", request, response);
+
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toAbsolutePath().toString());
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(0L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo((long) PICTURE.length);
+		assertThat(response.getContentLengthLong()).isEqualTo(PICTURE.length);
+		assertThat(response.getContentType()).isEqualTo("image/jpeg");
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void fileIsCopiedWithoutSendfile() throws Exception {
+		when(userService.getProfilePicture("u1")).thenReturn(new FileSystemResource(file));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		controller.getProfilePicture("u1", request, response);
+
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isNull();
+		assertThat(response.getContentLengthLong()).isEqualTo(PICTURE.length);
+		assertThat(response.getContentAsByteArray()).containsExactly(PICTURE);
+	}
+
+	@Test
+	void nonFileResourceIsStreamed() throws Exception {
+		when(userService.getProfilePicture("u1")).thenReturn(new ByteArrayResource(PICTURE) {
+			@Override
+			public String getFilename() {
+				return "picture.png";
+			}
+		});
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		controller.getProfilePicture("u1", new MockHttpServletRequest(), response);
+
+		assertThat(response.getContentType()).isEqualTo("image/png");
+		assertThat(response.getContentAsByteArray()).containsExactly(PICTURE);
+	}
+}
@@ -0,0 +1,154 @@
+package com.users.service.services.activity.impl;
+
+import com.users.service.documents.User;
+import com.users.service.services.cache.UserRespCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserActivityServiceImplTests {
+
+	private MongoTemplate mongoTemplate;
+	private BulkOperations bulkOperations;
+	private UserRespCache userRespCache;
+	private MeterRegistry meterRegistry;
+	private UserActivityServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		bulkOperations = mock(BulkOperations.class);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(bulkOperations);
+		userRespCache = mock(UserRespCache.class);
+		meterRegistry = new SimpleMeterRegistry();
+		service = new UserActivityServiceImpl(mongoTemplate, userRespCache, meterRegistry);
+		ReflectionTestUtils.setField(service, "maxPending", 2);
+		ReflectionTestUtils.setField(service, "flushBatchSize", 1000);
+	}
+
+	@Test
+	void twoLoginsCoalesceIntoOneMaxUpdate() throws InterruptedException {
+		service.recordLogin("u1");
+		Thread.sleep(2);
+		service.recordLogin("u1");
+
+		service.flush();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(bulkOperations, times(1)).updateOne(query.capture(), update.capture());
+		verify(bulkOperations).execute();
+		assertThat(query.getValue().getQueryObject()).containsEntry("_id", "u1");
+		Document max = update.getValue().getUpdateObject().get("$max", Document.class);
+		assertThat(max).containsOnlyKeys("lastSeenAt", "lastLoginAt");
+		assertThat(max.get("lastLoginAt")).isEqualTo(max.get("lastSeenAt"));
+		assertThat(pending()).isZero();
+	}
+
+	@Test
+	void seenAfterLoginKeepsTheLoginAndTheLatestSeen() {
+		service.recordLogin("u1");
+		service.recordSeen("u1");
+
+		service.flush();
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(bulkOperations).updateOne(any(Query.class), update.capture());
+		Document max = update.getValue().getUpdateObject().get("$max", Document.class);
+		assertThat(max).containsKeys("lastSeenAt", "lastLoginAt");
+	}
+
+	@Test
+	void seenOnlyDoesNotTouchLastLogin() {
+		service.recordSeen("u1");
+
+		service.flush();
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(bulkOperations).updateOne(any(Query.class), update.capture());
+		assertThat(update.getValue().getUpdateObject().get("$max", Document.class)).containsOnlyKeys("lastSeenAt");
+	}
+
+	@Test
+	void failedFlushPutsTheBatchBack() {
+		when(bulkOperations.execute()).thenThrow(new RuntimeException("mongo down"));
+		service.recordLogin("u1");
+
+		service.flush();
+
+		assertThat(pending()).isEqualTo(1);
+		verify(userRespCache, never()).invalidateAll(anyCollection());
+
+		BulkOperations retry = mock(BulkOperations.class);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(retry);
+		service.flush();
+
+		verify(retry).updateOne(any(Query.class), any(Update.class));
+		verify(retry).execute();
+		assertThat(pending()).isZero();
+	}
+
+	@Test
+	void bufferIsBoundedButKnownUsersStillUpdate() {
+		service.recordSeen("u1");
+		service.recordSeen("u2");
+		service.recordSeen("u3");
+		service.recordLogin("u1");
+
+		assertThat(pending()).isEqualTo(2);
+		assertThat(meterRegistry.get("users.activity.dropped").counter().count()).isEqualTo(1);
+
+		service.flush();
+
+		verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+	}
+
+	@Test
+	void successfulFlushInvalidatesCachedUsers() {
+		service.recordSeen("u1");
+
+		service.flush();
+
+		verify(userRespCache).invalidateAll(List.of("u1"));
+	}
+
+	@Test
+	void drainFlushesOnShutdown() {
+		service.recordLogin("u1");
+
+		service.drain();
+
+		verify(bulkOperations).execute();
+		assertThat(pending()).isZero();
+	}
+
+	@Test
+	void emptyFlushDoesNotTouchMongo() {
+		service.flush();
+
+		verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(Class.class));
+	}
+
+	private double pending() {
+		return meterRegistry.get("users.activity.pending").gauge().value();
+	}
+}
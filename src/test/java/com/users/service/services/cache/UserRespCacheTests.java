@@ -0,0 +1,112 @@
+package com.users.service.services.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.users.service.dtos.UserResp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserRespCacheTests {
+
+	private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+	private UserRespCache cache;
+
+	@BeforeEach
+	void setUp() {
+		cache = new UserRespCache(new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+	}
+
+	@Test
+	void etagChangesWhenOnlyActivityTimestampsChange() {
+		UserResp user = user(null);
+		String before = cache.get("u1", id -> user).getEtag();
+
+		// An activity flush leaves updatedAt alone and invalidates the entry
+		UserResp afterLogin = user(LocalDateTime.of(2025, 1, 2, 8, 30));
+		cache.invalidate("u1");
+		CachedUserResp reloaded = cache.get("u1", id -> afterLogin);
+
+		assertThat(afterLogin.getUpdatedAt()).isEqualTo(user.getUpdatedAt());
+		assertThat(reloaded.getEtag()).isNotEqualTo(before);
+	}
+
+	@Test
+	void etagIsStableForTheSameRepresentation() {
+		String first = cache.get("u1", id -> user(null)).getEtag();
+		cache.invalidate("u1");
+		String second = cache.get("u1", id -> user(null)).getEtag();
+
+		assertThat(second).isEqualTo(first);
+	}
+
+	@Test
+	void cachedJsonMatchesEtagSource() throws Exception {
+		CachedUserResp cached = cache.get("u1", id -> user(null));
+
+		assertThat(new ObjectMapper().readTree(cached.getJson()).get("id").asText()).isEqualTo("u1");
+		assertThat(cached.getEtag()).startsWith("\"").endsWith("\"");
+	}
+
+	@Test
+	void listEtagChangesWithActivityTimestamps() {
+		CachedUserResp before = cache.get("u1", id -> user(null));
+		cache.invalidate("u1");
+		CachedUserResp after = cache.get("u1", id -> user(LocalDateTime.of(2025, 1, 2, 8, 30)));
+
+		assertThat(cache.etagOf(List.of(after), "1:0:10")).isNotEqualTo(cache.etagOf(List.of(before), "1:0:10"));
+		assertThat(cache.etagOf(List.of(before), "1:1:10")).isNotEqualTo(cache.etagOf(List.of(before), "1:0:10"));
+	}
+
+	@Test
+	void getAllLoadsOnlyMissingIdsAndSkipsUnknownOnes() {
+		cache.get("u1", id -> user(null));
+		List<Set<String>> loaderCalls = new ArrayList<>();
+
+		Map<String, CachedUserResp> found = cache.getAll(List.of("u1", "u2", "nope"), missing -> {
+			loaderCalls.add(missing);
+			UserResp other = user(null);
+			other.setId("u2");
+			return List.of(other);
+		});
+
+		assertThat(loaderCalls).containsExactly(Set.of("u2", "nope"));
+		assertThat(found).containsOnlyKeys("u1", "u2");
+	}
+
+	@Test
+	void pageOfCachedJsonSerializesLikeThePageOfUsers() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+		UserResp user = user(LocalDateTime.of(2025, 1, 2, 8, 30));
+		CachedUserResp cached = cache.get("u1", id -> user);
+
+		String fromUsers = objectMapper.writeValueAsString(new PageImpl<>(List.of(user), PageRequest.of(0, 10), 1));
+		String fromCache = objectMapper.writeValueAsString(new PageImpl<>(
+				List.of(new RawValue(new String(cached.getJson(), StandardCharsets.UTF_8))), PageRequest.of(0, 10), 1));
+
+		assertThat(objectMapper.readTree(fromCache)).isEqualTo(objectMapper.readTree(fromUsers));
+	}
+
+	private static UserResp user(LocalDateTime lastLoginAt) {
+		UserResp user = new UserResp();
+		user.setId("u1");
+		user.setUsername("alice");
+		user.setUpdatedAt(UPDATED_AT);
+		user.setLastLoginAt(lastLoginAt);
+		user.setLastSeenAt(lastLoginAt);
+		return user;
+	}
+}
@@ -0,0 +1,141 @@
+package com.users.service.services.image.impl;
+
+import com.users.service.metrics.ImagePipelineMetrics;
+import com.users.service.services.image.ProcessedImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveImageEncoderTests {
+
+	private static final long TARGET_BYTES = 60_000;
+
+	private SimpleMeterRegistry registry;
+	private AdaptiveImageEncoder encoder;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		encoder = encoder(registry, TARGET_BYTES, 0.5f, 0.75f, 3);
+	}
+
+	@Test
+	void imageThatFitsAtMaxQualityTakesOneTrial() throws Exception {
+		ProcessedImage result = encoder.encode(photo(320, 240, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+		assertThat(result.getContentType()).isEqualTo("image/jpeg");
+		assertThat(result.getSize()).isLessThanOrEqualTo(TARGET_BYTES);
+		assertThat(trials()).isEqualTo(1);
+	}
+
+	@Test
+	void searchFindsQualityAboveTheFloorWithinThreeTrials() throws Exception {
+		BufferedImage image = photo(1024, 768, BufferedImage.TYPE_INT_RGB);
+		long atMax = floorOnly(0.75f).encode(image, "jpeg").getSize();
+		long atFloor = floorOnly(0.5f).encode(image, "jpeg").getSize();
+		assertThat(atMax).isGreaterThan(TARGET_BYTES);
+		assertThat(atFloor).isLessThan(TARGET_BYTES);
+
+		ProcessedImage result = encoder.encode(image, "jpeg");
+
+		assertThat(trials()).isEqualTo(3);
+		assertThat(result.getSize()).isLessThanOrEqualTo(TARGET_BYTES).isGreaterThan(atFloor);
+	}
+
+	@Test
+	void floorIsKeptWhenNothingFits() throws Exception {
+		BufferedImage image = photo(1024, 768, BufferedImage.TYPE_INT_RGB);
+		long atFloor = floorOnly(0.5f).encode(image, "jpeg").getSize();
+
+		ProcessedImage result = encoder(registry, 1_000, 0.5f, 0.75f, 3).encode(image, "jpeg");
+
+		assertThat(result.getSize()).isEqualTo(atFloor);
+		assertThat(trials()).isEqualTo(2);
+	}
+
+	@Test
+	void pngWithTransparencyStaysPng() throws Exception {
+		BufferedImage image = photo(320, 240, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, 0x80FFFFFF);
+
+		ProcessedImage result = encoder.encode(image, "png");
+
+		assertThat(result.getContentType()).isEqualTo("image/png");
+		assertThat(result.getExtension()).isEqualTo(".png");
+	}
+
+	@Test
+	void opaquePngBecomesJpeg() throws Exception {
+		ProcessedImage result = encoder.encode(photo(320, 240, BufferedImage.TYPE_INT_ARGB), "png");
+
+		assertThat(result.getContentType()).isEqualTo("image/jpeg");
+		assertThat(result.getExtension()).isEqualTo(".jpg");
+		assertThat(result.getSize()).isLessThanOrEqualTo(TARGET_BYTES);
+	}
+
+	@Test
+	void opaqueGraphicStaysPngWhenJpegMissesTheBudgetAndPngIsSmaller() throws Exception {
+		BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 256; y++) {
+			for (int x = 0; x < 256; x++) {
+				image.setRGB(x, y, 0xFF2060A0);
+			}
+		}
+
+		ProcessedImage result = encoder(registry, 100, 0.5f, 0.75f, 3).encode(image, "png");
+
+		assertThat(result.getContentType()).isEqualTo("image/png");
+	}
+
+	private double trials() {
+		return registry.get("users.image.encode.trials").summary().max();
+	}
+
+	// Single trial at a fixed quality, to know the sizes the search moves between
+	private static AdaptiveImageEncoder floorOnly(float quality) {
+		return encoder(new SimpleMeterRegistry(), 1, quality, quality, 1);
+	}
+
+	private static AdaptiveImageEncoder encoder(SimpleMeterRegistry registry, long targetBytes, float minQuality, float maxQuality, int maxTrials) {
+		AdaptiveImageEncoder encoder = new AdaptiveImageEncoder(new ImagePipelineMetrics(registry));
+		ReflectionTestUtils.setField(encoder, "targetBytes", targetBytes);
+		ReflectionTestUtils.setField(encoder, "minQuality", minQuality);
+		ReflectionTestUtils.setField(encoder, "maxQuality", maxQuality);
+		ReflectionTestUtils.setField(encoder, "maxTrials", maxTrials);
+		ReflectionTestUtils.setField(encoder, "convertOpaqueToJpeg", true);
+		return encoder;
+	}
+
+	// Smooth large-scale structure plus grain, which compresses roughly like a photo
+	private static BufferedImage photo(int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		Random random = new Random(7);
+		float[][] cells = new float[height / 32 + 2][width / 32 + 2];
+		for (float[] row : cells) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] = random.nextFloat();
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				float fx = x / 32f;
+				float fy = y / 32f;
+				int cx = (int) fx;
+				int cy = (int) fy;
+				float tx = fx - cx;
+				float ty = fy - cy;
+				float cell = (cells[cy][cx] * (1 - tx) + cells[cy][cx + 1] * tx) * (1 - ty)
+						+ (cells[cy + 1][cx] * (1 - tx) + cells[cy + 1][cx + 1] * tx) * ty;
+				int value = Math.min(255, (int) ((cell * 0.7f + (float) x / width * 0.2f + random.nextFloat() * 0.1f) * 255));
+				image.setRGB(x, y, 0xFF000000 | value << 16 | (255 - value) << 8 | (value + y) & 0xFF);
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,125 @@
+package com.users.service.services.image.resample;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ResampleKernelTests {
+
+	private static final int[][] SIZES = {
+			{64, 48, 31, 23},
+			{300, 200, 128, 85},
+			{257, 511, 100, 199},
+			{1000, 10, 999, 9},
+			{33, 33, 66, 66},
+			{2500, 1700, 2048, 1392},
+	};
+
+	private static final int[] TYPES = {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR,
+			BufferedImage.TYPE_BYTE_GRAY,
+	};
+
+	// Stripes finer than the target can show must come out grey, not as moire
+	@Test
+	void lanczosSuppressesDetailAboveTheTargetResolutionThatBicubicAliases() {
+		BufferedImage stripes = stripes(1000, 750, 3.0);
+
+		double lanczos = contrast(new LanczosResampler(new ScalarResampleKernel()).resize(stripes, 512, 384));
+		double bicubic = contrast(new Java2dResampler().resize(stripes, 512, 384));
+
+		assertThat(lanczos).isLessThan(0.15);
+		assertThat(bicubic).isGreaterThan(0.5);
+	}
+
+	@Test
+	void lanczosKeepsDetailWithinTheTargetResolution() {
+		BufferedImage stripes = stripes(1000, 750, 16.0);
+
+		assertThat(contrast(new LanczosResampler(new ScalarResampleKernel()).resize(stripes, 512, 384))).isGreaterThan(0.95);
+	}
+
+	private static BufferedImage stripes(int width, int height, double period) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int value = (int) Math.round(127.5 + 100 * Math.cos(2 * Math.PI * (x + 0.37 * y) / period));
+				image.setRGB(x, y, value << 16 | value << 8 | value);
+			}
+		}
+		return image;
+	}
+
+	// RMS contrast of the interior relative to the source stripes, 1.0 keeps them fully, 0.0 is flat grey
+	private static double contrast(BufferedImage image) {
+		double sum = 0;
+		double squares = 0;
+		int count = 0;
+		for (int y = 8; y < image.getHeight() - 8; y++) {
+			for (int x = 8; x < image.getWidth() - 8; x++) {
+				int value = image.getRGB(x, y) & 0xFF;
+				sum += value;
+				squares += value * value;
+				count++;
+			}
+		}
+		double mean = sum / count;
+		return Math.sqrt(squares / count - mean * mean) / (100 / Math.sqrt(2));
+	}
+
+	@Test
+	void vectorAndScalarKernelsProduceIdenticalPixels() {
+		assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+				"jdk.incubator.vector is not enabled");
+		Resampler scalar = new LanczosResampler(new ScalarResampleKernel());
+		Resampler vector = new LanczosResampler(new VectorResampleKernel());
+		Random random = new Random(7);
+
+		for (int[] size : SIZES) {
+			for (int type : TYPES) {
+				BufferedImage source = randomImage(size[0], size[1], type, random);
+
+				int[] expected = pixels(scalar.resize(source, size[2], size[3]));
+				int[] actual = pixels(vector.resize(source, size[2], size[3]));
+
+				assertThat(actual)
+						.as("%dx%d -> %dx%d, type %d", size[0], size[1], size[2], size[3], type)
+						.isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	void vectorFallsBackToJava2dWithoutTheModule() {
+		Resampler resampler = ResamplerFactory.create(ResamplerFactory.VECTOR);
+
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			assertThat(resampler).isInstanceOf(LanczosResampler.class);
+		}
+		else {
+			assertThat(resampler).isInstanceOf(Java2dResampler.class);
+		}
+	}
+
+	private static BufferedImage randomImage(int width, int height, int type, Random random) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+}
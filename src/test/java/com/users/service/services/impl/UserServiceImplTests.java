@@ -0,0 +1,174 @@
+package com.users.service.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import com.users.service.configs.JwtTokenProvider;
+import com.users.service.documents.User;
+import com.users.service.exceptions.UserNotFoundException;
+import com.users.service.metrics.AuthMetrics;
+import com.users.service.repositories.UserRepository;
+import com.users.service.services.activity.UserActivityService;
+import com.users.service.services.cache.CachedUserResp;
+import com.users.service.services.cache.UserRespCache;
+import com.users.service.services.image.ImageProcessingService;
+import com.users.service.services.image.ProcessedImage;
+import com.users.service.services.objectstore.ObjectStorageService;
+import com.users.service.services.objectstore.ProfilePictureDeletionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceImplTests {
+
+	private static final String NEW_URL = "/bucket/profile-pictures/u1/new.jpg";
+
+	private UserRepository userRepository;
+	private ImageProcessingService imageProcessingService;
+	private ObjectStorageService objectStorageService;
+	private ProfilePictureDeletionService deletionService;
+	private UserRespCache userRespCache;
+	private MongoTemplate mongoTemplate;
+	private UserServiceImpl service;
+	private MockMultipartFile file;
+	private ProcessedImage processedImage;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		imageProcessingService = mock(ImageProcessingService.class);
+		objectStorageService = mock(ObjectStorageService.class);
+		deletionService = mock(ProfilePictureDeletionService.class);
+		userRespCache = mock(UserRespCache.class);
+		mongoTemplate = mock(MongoTemplate.class);
+		service = new UserServiceImpl(userRepository, mock(PasswordEncoder.class), mock(JwtTokenProvider.class),
+				imageProcessingService, objectStorageService, deletionService, mock(AuthMetrics.class), mock(UserActivityService.class),
+				userRespCache, mongoTemplate);
+		file = new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[] { 1 });
+
+		User user = new User();
+		user.setId("u1");
+		user.setProfileImageUrl("/bucket/profile-pictures/u1/old.jpg");
+		user.setLastLoginAt(LocalDateTime.of(2025, 1, 1, 8, 0));
+		user.setLastSeenAt(LocalDateTime.of(2025, 1, 1, 8, 0));
+		when(userRepository.findById("u1")).thenReturn(Optional.of(user));
+		processedImage = new ProcessedImage(new byte[] { 2 }, "image/jpeg", ".jpg");
+		when(imageProcessingService.processProfilePicture(file)).thenReturn(processedImage);
+		when(objectStorageService.newProfilePictureUrl("u1", ".jpg")).thenReturn(NEW_URL);
+	}
+
+	@Test
+	void uploadOnlyWritesThePictureFields() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		service.uploadProfilePicture("u1", file);
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(User.class));
+		assertThat(query.getValue().getQueryObject()).containsEntry("_id", "u1");
+		Document set = (Document) update.getValue().getUpdateObject().get("$set");
+		assertThat(set.keySet()).containsExactlyInAnyOrder("profileImageUrl", "updatedAt");
+		assertThat(set.get("profileImageUrl")).isEqualTo(NEW_URL);
+		assertThat(update.getValue().getUpdateObject().keySet()).containsExactly("$set");
+		verify(userRepository, never()).save(any());
+		verify(userRespCache).invalidate("u1");
+		verify(deletionService).scheduleDeletion("/bucket/profile-pictures/u1/old.jpg");
+	}
+
+	@Test
+	void uploadForUserDeletedMeanwhileFailsAndKeepsTheOldPicture() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+				.thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+		assertThatThrownBy(() -> service.uploadProfilePicture("u1", file)).isInstanceOf(UserNotFoundException.class);
+
+		verify(deletionService).scheduleOrphanCheck(NEW_URL);
+		verify(deletionService, never()).scheduleDeletion(any());
+	}
+
+	@Test
+	void orphanCheckIsRecordedBeforeTheObjectIsWritten() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		service.uploadProfilePicture("u1", file);
+
+		InOrder order = inOrder(deletionService, objectStorageService, mongoTemplate);
+		order.verify(deletionService).scheduleOrphanCheck(NEW_URL);
+		order.verify(objectStorageService).storeProfilePicture(NEW_URL, processedImage);
+		order.verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+	}
+
+	@Test
+	void failedPutLeavesTheOrphanCheckAndTheUserUntouched() {
+		doThrow(new RuntimeException("timeout")).when(objectStorageService).storeProfilePicture(NEW_URL, processedImage);
+
+		assertThatThrownBy(() -> service.uploadProfilePicture("u1", file)).hasMessage("timeout");
+
+		verify(deletionService).scheduleOrphanCheck(NEW_URL);
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+		verify(deletionService, never()).scheduleDeletion(any());
+	}
+
+	@Test
+	void nothingIsWrittenWhenTheOrphanCheckCannotBeRecorded() {
+		doThrow(new RuntimeException("mongo down")).when(deletionService).scheduleOrphanCheck(NEW_URL);
+
+		assertThatThrownBy(() -> service.uploadProfilePicture("u1", file)).hasMessage("mongo down");
+
+		verify(objectStorageService, never()).storeProfilePicture(any(), any());
+	}
+
+	@Test
+	void usersByIdsFollowTheRequestedOrderAndPage() {
+		UserRespCache realCache = new UserRespCache(new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+		UserServiceImpl byIds = new UserServiceImpl(userRepository, mock(PasswordEncoder.class), mock(JwtTokenProvider.class),
+				imageProcessingService, objectStorageService, deletionService, mock(AuthMetrics.class), mock(UserActivityService.class),
+				realCache, mongoTemplate);
+		when(userRepository.findAllById(any())).thenAnswer(invocation -> {
+			Iterable<String> ids = invocation.getArgument(0);
+			List<User> users = new ArrayList<>();
+			for (String id : ids) {
+				if (!id.equals("missing")) {
+					User user = new User();
+					user.setId(id);
+					users.add(user);
+				}
+			}
+			return users;
+		});
+
+		Page<CachedUserResp> page = byIds.getAllUsersByIds(List.of("c", "a", "missing", "b", "a"), PageRequest.of(1, 2));
+
+		assertThat(page.getTotalElements()).isEqualTo(3);
+		assertThat(page.getContent()).extracting(user -> user.getUser().getId()).containsExactly("b");
+	}
+}
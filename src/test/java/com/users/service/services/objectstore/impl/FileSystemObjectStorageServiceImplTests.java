@@ -0,0 +1,125 @@
+package com.users.service.services.objectstore.impl;
+
+import com.users.service.exceptions.ProfilePictureNotFoundException;
+import com.users.service.metrics.ImagePipelineMetrics;
+import com.users.service.services.image.ProcessedImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemObjectStorageServiceImplTests {
+
+	@TempDir
+	Path root;
+
+	private FileSystemObjectStorageServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		service = new FileSystemObjectStorageServiceImpl(new ImagePipelineMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(service, "rootDirectory", root);
+		ReflectionTestUtils.setField(service, "bucketName", "user-profiles");
+		ReflectionTestUtils.setField(service, "fsync", true);
+		service.init();
+	}
+
+	@Test
+	void initCreatesTheBucketDirectory() {
+		assertThat(root.resolve("user-profiles")).isDirectory();
+	}
+
+	@Test
+	void storedObjectLoadsAsAFileWithTheSameBytes() throws Exception {
+		String url = service.newProfilePictureUrl("u1", ".jpg");
+		service.storeProfilePicture(url, image(1, 2, 3));
+
+		Resource resource = service.loadProfilePicture(url);
+
+		assertThat(url).startsWith("/user-profiles/profile-pictures/u1/").endsWith(".jpg");
+		assertThat(resource.isFile()).isTrue();
+		assertThat(resource.getContentAsByteArray()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void objectsAreShardedOverTwoDirectoryLevels() throws Exception {
+		String url = service.newProfilePictureUrl("u1", ".jpg");
+		service.storeProfilePicture(url, image(1));
+
+		List<Path> files = files();
+
+		assertThat(files).hasSize(1);
+		Path relative = root.resolve("user-profiles").relativize(files.get(0));
+		assertThat(relative.getNameCount()).isEqualTo(3);
+		assertThat(relative.getName(0).toString()).matches("[0-9a-f]{2}");
+		assertThat(relative.getName(1).toString()).matches("[0-9a-f]{2}");
+		assertThat(relative.getName(2).toString()).startsWith("profile-pictures_u1_").endsWith(".jpg");
+	}
+
+	@Test
+	void writesLeaveNoTempFilesAndReplaceWholeObjects() throws Exception {
+		String url = service.newProfilePictureUrl("u1", ".png");
+		service.storeProfilePicture(url, image(1, 1, 1, 1));
+		service.storeProfilePicture(url, image(2));
+
+		assertThat(files()).hasSize(1).noneMatch(path -> path.getFileName().toString().startsWith(".upload-"));
+		assertThat(service.loadProfilePicture(url).getContentAsByteArray()).containsExactly(2);
+	}
+
+	@Test
+	void deletedObjectIsNotFound() {
+		String url = service.newProfilePictureUrl("u1", ".jpg");
+		service.storeProfilePicture(url, image(1));
+
+		service.deleteProfilePicture(url);
+
+		assertThatThrownBy(() -> service.loadProfilePicture(url)).isInstanceOf(ProfilePictureNotFoundException.class);
+	}
+
+	@Test
+	void deletingMissingObjectsIsNotAFailure() {
+		String url = service.newProfilePictureUrl("u1", ".jpg");
+
+		assertThat(service.deleteProfilePictures(List.of(url))).isEmpty();
+	}
+
+	@Test
+	void neverStoredObjectIsNotFound() {
+		assertThatThrownBy(() -> service.loadProfilePicture("/user-profiles/profile-pictures/u1/missing.jpg"))
+				.isInstanceOf(ProfilePictureNotFoundException.class);
+	}
+
+	@Test
+	void traversalInTheObjectNameStaysInsideTheBucket() throws Exception {
+		Files.writeString(root.resolve("secret.txt"), "secret");
+
+		assertThatThrownBy(() -> service.loadProfilePicture("/user-profiles/../../secret.txt"))
+				.isInstanceOf(ProfilePictureNotFoundException.class);
+		assertThatThrownBy(() -> service.loadProfilePicture("/user-profiles/.."))
+				.isInstanceOf(ProfilePictureNotFoundException.class);
+	}
+
+	private List<Path> files() throws Exception {
+		try (Stream<Path> paths = Files.walk(root.resolve("user-profiles"))) {
+			return paths.filter(Files::isRegularFile).toList();
+		}
+	}
+
+	private static ProcessedImage image(int... bytes) {
+		byte[] data = new byte[bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			data[i] = (byte) bytes[i];
+		}
+		return new ProcessedImage(data, "image/jpeg", ".jpg");
+	}
+}
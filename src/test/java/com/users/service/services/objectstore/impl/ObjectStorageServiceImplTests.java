@@ -0,0 +1,56 @@
+package com.users.service.services.objectstore.impl;
+
+import com.users.service.exceptions.ProfilePictureNotFoundException;
+import com.users.service.metrics.ImagePipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ObjectStorageServiceImplTests {
+
+	private static final String URL = "/user-profiles/profile-pictures/u1/a.jpg";
+
+	private MinioClient minioClient;
+	private ObjectStorageServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		minioClient = mock(MinioClient.class);
+		service = new ObjectStorageServiceImpl(minioClient,
+				new ImagePipelineMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(service, "bucketName", "user-profiles");
+	}
+
+	@Test
+	void missingObjectIsReportedAsNotFound() throws Exception {
+		when(minioClient.getObject(any(GetObjectArgs.class))).thenThrow(errorResponse("NoSuchKey"));
+
+		assertThatThrownBy(() -> service.loadProfilePicture(URL))
+				.isInstanceOf(ProfilePictureNotFoundException.class);
+	}
+
+	@Test
+	void otherStorageErrorsStayServerErrors() throws Exception {
+		when(minioClient.getObject(any(GetObjectArgs.class))).thenThrow(errorResponse("AccessDenied"));
+
+		assertThatThrownBy(() -> service.loadProfilePicture(URL))
+				.isInstanceOf(RuntimeException.class)
+				.isNotInstanceOf(ProfilePictureNotFoundException.class);
+	}
+
+	private static ErrorResponseException errorResponse(String code) {
+		ErrorResponse errorResponse = new ErrorResponse(code, code, "user-profiles", "profile-pictures/u1/a.jpg",
+				"/user-profiles/profile-pictures/u1/a.jpg", "request", "host");
+		return new ErrorResponseException(errorResponse, null, null);
+	}
+}
@@ -0,0 +1,132 @@
+package com.users.service.services.objectstore.impl;
+
+import com.users.service.documents.PendingDeletion;
+import com.users.service.documents.User;
+import com.users.service.repositories.PendingDeletionRepository;
+import com.users.service.repositories.UserRepository;
+import com.users.service.services.objectstore.ObjectStorageService;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProfilePictureDeletionServiceImplTests {
+
+	private static final String URL = "/user-profiles/profile-pictures/u1/a.jpg";
+
+	private PendingDeletionRepository pendingDeletionRepository;
+	private UserRepository userRepository;
+	private ObjectStorageService objectStorageService;
+	private MongoTemplate mongoTemplate;
+	private BulkOperations bulkOperations;
+	private ProfilePictureDeletionServiceImpl service;
+
+	@BeforeEach
+	void setUp() {
+		pendingDeletionRepository = mock(PendingDeletionRepository.class);
+		userRepository = mock(UserRepository.class);
+		objectStorageService = mock(ObjectStorageService.class);
+		mongoTemplate = mock(MongoTemplate.class);
+		bulkOperations = mock(BulkOperations.class);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PendingDeletion.class)).thenReturn(bulkOperations);
+		service = new ProfilePictureDeletionServiceImpl(pendingDeletionRepository, userRepository, objectStorageService, mongoTemplate);
+		ReflectionTestUtils.setField(service, "batchSize", 500);
+		ReflectionTestUtils.setField(service, "orphanGrace", Duration.ofMinutes(10));
+		ReflectionTestUtils.setField(service, "initialBackoff", Duration.ofSeconds(30));
+		ReflectionTestUtils.setField(service, "maxBackoff", Duration.ofHours(1));
+		ReflectionTestUtils.setField(service, "lease", Duration.ofMinutes(5));
+	}
+
+	@Test
+	void schedulingUpsertsAndBumpsTheVersion() {
+		service.scheduleDeletion(URL);
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(PendingDeletion.class));
+		Document document = update.getValue().getUpdateObject();
+		assertThat(document.get("$set", Document.class).get("reason")).isEqualTo("replaced");
+		assertThat(document.get("$inc", Document.class).get("version")).isEqualTo(1);
+	}
+
+	@Test
+	void referencedEntryIsRemovedOnlyAtTheClaimedVersion() {
+		PendingDeletion claimed = entry(7);
+		dueAndClaimed(claimed);
+		User user = new User();
+		user.setProfileImageUrl(URL);
+		when(userRepository.findAllByProfileImageUrlIn(any())).thenReturn(List.of(user));
+
+		service.sweep();
+
+		verify(objectStorageService, never()).deleteProfilePictures(any());
+		ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+		verify(bulkOperations).remove(removed.capture());
+		assertThat(removed.getValue().getQueryObject())
+				.containsEntry("_id", URL)
+				.containsEntry("version", 7L);
+		verify(bulkOperations).execute();
+	}
+
+	@Test
+	void failedDeleteIsRescheduledOnlyAtTheClaimedVersion() {
+		dueAndClaimed(entry(3));
+		when(userRepository.findAllByProfileImageUrlIn(any())).thenReturn(List.of());
+		when(objectStorageService.deleteProfilePictures(List.of(URL))).thenReturn(List.of(URL));
+
+		service.sweep();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(bulkOperations).updateOne(query.capture(), update.capture());
+		verify(bulkOperations, never()).remove(any(Query.class));
+		assertThat(query.getValue().getQueryObject()).containsEntry("version", 3L);
+		Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+		assertThat(set.get("attempts")).isEqualTo(1);
+	}
+
+	@Test
+	void entriesClaimedByAnotherInstanceAreSkipped() {
+		when(pendingDeletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(any(), any()))
+				.thenReturn(List.of(entry(1)));
+		when(pendingDeletionRepository.findByClaimedBy(anyString())).thenReturn(List.of());
+
+		service.sweep();
+
+		verify(userRepository, never()).findAllByProfileImageUrlIn(any());
+		verify(objectStorageService, never()).deleteProfilePictures(any());
+		verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(PendingDeletion.class));
+	}
+
+	private void dueAndClaimed(PendingDeletion claimed) {
+		when(pendingDeletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(any(), any()))
+				.thenReturn(List.of(entry(claimed.getVersion() - 1)));
+		when(pendingDeletionRepository.findByClaimedBy(anyString())).thenReturn(List.of(claimed));
+	}
+
+	private static PendingDeletion entry(long version) {
+		PendingDeletion pendingDeletion = new PendingDeletion();
+		pendingDeletion.setObjectUrl(URL);
+		pendingDeletion.setReason("orphan-check");
+		pendingDeletion.setNextAttemptAt(LocalDateTime.now().minusMinutes(1));
+		pendingDeletion.setVersion(version);
+		return pendingDeletion;
+	}
+}
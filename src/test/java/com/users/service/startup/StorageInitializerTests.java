@@ -0,0 +1,48 @@
+package com.users.service.startup;
+
+import com.users.service.metrics.ImagePipelineMetrics;
+import com.users.service.services.objectstore.impl.ObjectStorageServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(OutputCaptureExtension.class)
+class StorageInitializerTests {
+
+	@Test
+	void failedAttemptsLogOneWarningEachWithoutStackTraces(CapturedOutput output) throws Exception {
+		MinioClient minioClient = mock(MinioClient.class);
+		when(minioClient.bucketExists(any(BucketExistsArgs.class)))
+				.thenThrow(new ConnectException("Connection refused"))
+				.thenThrow(new ConnectException("Connection refused"))
+				.thenReturn(true);
+		ObjectStorageServiceImpl storage = new ObjectStorageServiceImpl(minioClient, new ImagePipelineMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(storage, "bucketName", "user-profiles");
+		StorageInitializer initializer = new StorageInitializer(storage);
+		ReflectionTestUtils.setField(initializer, "mode", "async");
+		ReflectionTestUtils.setField(initializer, "initialBackoff", Duration.ofMillis(10));
+		ReflectionTestUtils.setField(initializer, "maxBackoff", Duration.ofMillis(20));
+
+		initializer.initialize();
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> initializer.health().getStatus().equals(Status.UP));
+		assertThat(output.getOut().lines().filter(line -> line.contains("WARN"))).hasSize(2)
+				.allMatch(line -> line.contains("Connection refused"));
+		assertThat(output.getOut()).doesNotContain("ERROR").doesNotContain("\tat ");
+	}
+}